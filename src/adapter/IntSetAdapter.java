@@ -0,0 +1,39 @@
+package adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import util.IntSet;
+
+import java.io.IOException;
+
+public class IntSetAdapter extends TypeAdapter<IntSet> {
+    @Override
+    public void write(JsonWriter jsonWriter, IntSet set) throws IOException {
+        if (set == null) {
+            jsonWriter.nullValue();
+            return;
+        }
+        jsonWriter.beginArray();
+        for (int value : set.toArray()) {
+            jsonWriter.value(value);
+        }
+        jsonWriter.endArray();
+    }
+
+    @Override
+    public IntSet read(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        IntSet set = new IntSet();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            set.add(jsonReader.nextInt());
+        }
+        jsonReader.endArray();
+        return set;
+    }
+}
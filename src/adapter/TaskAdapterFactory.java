@@ -0,0 +1,69 @@
+package adapter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.Task;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Время задачи хранится в примитивных полях, а в JSON по-прежнему передаются duration и startTime
+public class TaskAdapterFactory implements TypeAdapterFactory {
+    private static final String DURATION = "duration";
+    private static final String START_TIME = "startTime";
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Task.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+        TypeAdapter<Duration> durationAdapter = gson.getAdapter(Duration.class);
+        TypeAdapter<LocalDateTime> timeAdapter = gson.getAdapter(LocalDateTime.class);
+
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter jsonWriter, T value) throws IOException {
+                if (value == null) {
+                    jsonWriter.nullValue();
+                    return;
+                }
+                Task task = (Task) value;
+                JsonObject json = delegate.toJsonTree(value).getAsJsonObject();
+                if (task.hasDuration()) {
+                    json.add(DURATION, durationAdapter.toJsonTree(Duration.ofMinutes(task.getDuration())));
+                }
+                if (task.hasStartTime()) {
+                    json.add(START_TIME, timeAdapter.toJsonTree(task.getStartTime()));
+                }
+                elementAdapter.write(jsonWriter, json);
+            }
+
+            @Override
+            public T read(JsonReader jsonReader) throws IOException {
+                JsonElement json = elementAdapter.read(jsonReader);
+                if (json == null || json.isJsonNull()) {
+                    return null;
+                }
+                T value = delegate.fromJsonTree(json);
+                Task task = (Task) value;
+                JsonObject object = json.getAsJsonObject();
+                if (object.has(DURATION) && !object.get(DURATION).isJsonNull()) {
+                    task.setDuration(durationAdapter.fromJsonTree(object.get(DURATION)).toMinutes());
+                }
+                if (object.has(START_TIME)) {
+                    task.setStartTime(timeAdapter.fromJsonTree(object.get(START_TIME)));
+                }
+                return value;
+            }
+        };
+    }
+}
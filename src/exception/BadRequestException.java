@@ -0,0 +1,12 @@
+package exception;
+
+// Некорректные параметры самого запроса, в отличие от нарушения правил менеджера
+public class BadRequestException extends ValidationException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+
+    public BadRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -2,15 +2,59 @@ package handler;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import exception.VersionConflictException;
+import model.Task;
+import service.task.TaskManager;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 public abstract class AbstractHandler implements HttpHandler {
+    // Версии задач в памяти начинаются заново после перезапуска, поэтому их ETag содержит метку запуска:
+    // теги, выданные прошлым запуском, не совпадут с новыми версиями. Менеджеры с хранилищем сохраняют
+    // версии, и их ETag действителен и после перезапуска
+    private static final String INSTANCE = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
     protected void sendText(HttpExchange h, int code, String text) throws IOException {
         byte[] response = text.getBytes(StandardCharsets.UTF_8);
         h.getResponseHeaders().add("Content-Type", "application/json");
         h.sendResponseHeaders(code, response.length);
-        h.getResponseBody().write(response);
+        try (OutputStream os = h.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    protected void setETag(HttpExchange h, TaskManager manager, Task task) {
+        h.getResponseHeaders().set("ETag", "\"" + scope(manager) + task.getVersion() + "\"");
+    }
+
+    // Ожидаемая версия из If-Match передаётся менеджеру в самой задаче; без заголовка или с "*"
+    // версия 0 и запись выполняется без проверки
+    protected void applyIfMatch(HttpExchange h, TaskManager manager, Task task) {
+        String header = h.getRequestHeaders().getFirst("If-Match");
+        if (header == null || header.trim().equals("*")) {
+            task.setVersion(0);
+            return;
+        }
+        String tag = header.trim();
+        String prefix = "\"" + scope(manager);
+        long version = 0;
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                version = Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException e) {
+                version = 0;
+            }
+        }
+        if (version <= 0) {
+            throw new VersionConflictException("Задача с id: " + task.getId() + " уже изменена: ETag " + tag
+                    + " не соответствует текущей версии");
+        }
+        task.setVersion(version);
+    }
+
+    private static String scope(TaskManager manager) {
+        return manager.isPersistent() ? "" : INSTANCE + "-";
     }
 }
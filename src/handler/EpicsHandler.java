@@ -53,6 +53,7 @@ public class EpicsHandler extends AbstractHandler {
                 case 3:
                     epic = manager.getEpicById(Integer.parseInt(pathParts[2]));
                     if (epic != null) {
+                        setETag(exchange, manager, epic);
                         sendText(exchange, 200, gson.toJson(epic));
                     } else {
                         throw new NotFoundException("Эпика с идентификатором " + pathParts[2] + " не существует.");
@@ -62,13 +63,9 @@ public class EpicsHandler extends AbstractHandler {
                     if (!pathParts[3].equals("subtasks")) {
                         throw new NotFoundException("Неверный путь.");
                     }
-                    epic = manager.getEpicById(Integer.parseInt(pathParts[2]));
-                    if (epic != null) {
-                        List<SubTask> subTasks = manager.getEpicSubTasks(epic);
-                        sendText(exchange, 200, gson.toJson(subTasks));
-                    } else {
-                        throw new NotFoundException("Эпика с идентификатором " + pathParts[2] + " не существует.");
-                    }
+                    // Эпик и его подзадачи читаются вместе, параллельное удаление их не разделит
+                    List<SubTask> subTasks = manager.getEpicSubTasks(Integer.parseInt(pathParts[2]));
+                    sendText(exchange, 200, gson.toJson(subTasks));
                     break;
                 default:
                     throw new NotFoundException("Неверный путь.");
@@ -89,7 +86,9 @@ public class EpicsHandler extends AbstractHandler {
                     sendText(exchange, 201, "Создан новый эпик под id: " + newEpic.getId() + ".");
                     break;
                 case 3:
+                    applyIfMatch(exchange, manager, epic);
                     manager.updateEpic(epic);
+                    setETag(exchange, manager, epic);
                     sendText(exchange, 200, "Эпик под id: " + epic.getId() + " успешно обновлён.");
                     break;
                 default:
@@ -1,13 +1,17 @@
 package handler;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import com.sun.net.httpserver.HttpExchange;
+import exception.BadRequestException;
 import exception.ManagerLoadException;
 import exception.ManagerSaveException;
 import exception.NotFoundException;
 import exception.ValidationException;
+import exception.VersionConflictException;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 public class ErrorHandler {
@@ -19,43 +23,75 @@ public class ErrorHandler {
 
     public void handle(HttpExchange h, NumberFormatException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 400, gson.toJson(e));
+        sendText(h, 400, toJson(e));
     }
 
     public void handle(HttpExchange h, ManagerSaveException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 400, gson.toJson(e));
+        sendText(h, 400, toJson(e));
     }
 
     public void handle(HttpExchange h, ManagerLoadException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 400, gson.toJson(e));
+        sendText(h, 400, toJson(e));
     }
 
     public void handle(HttpExchange h, NullPointerException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 400, gson.toJson(e));
+        sendText(h, 400, toJson(e));
     }
 
     public void handle(HttpExchange h, NotFoundException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 404, gson.toJson(e));
+        sendText(h, 404, toJson(e));
+    }
+
+    public void handle(HttpExchange h, BadRequestException e) throws IOException {
+        e.printStackTrace();
+        sendText(h, 400, toJson(e));
     }
 
     public void handle(HttpExchange h, ValidationException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 406, gson.toJson(e));
+        sendText(h, 406, toJson(e));
     }
 
-    public void handle(HttpExchange h, Exception e) throws IOException {
+    public void handle(HttpExchange h, VersionConflictException e) throws IOException {
         e.printStackTrace();
-        sendText(h, 500, gson.toJson(e));
+        sendText(h, 412, toJson(e));
+    }
+
+    // Обработчики перехватывают Exception, поэтому перегрузка выбирается по фактическому типу исключения
+    public void handle(HttpExchange h, Exception e) throws IOException {
+        switch (e) {
+            case NumberFormatException exception -> handle(h, exception);
+            case ManagerSaveException exception -> handle(h, exception);
+            case ManagerLoadException exception -> handle(h, exception);
+            case NullPointerException exception -> handle(h, exception);
+            case NotFoundException exception -> handle(h, exception);
+            case BadRequestException exception -> handle(h, exception);
+            case ValidationException exception -> handle(h, exception);
+            case VersionConflictException exception -> handle(h, exception);
+            default -> {
+                e.printStackTrace();
+                sendText(h, 500, toJson(e));
+            }
+        }
+    }
+
+    // Gson не может разобрать Throwable через рефлексию в новых JDK, поэтому в ответ идёт только сообщение
+    private String toJson(Exception e) {
+        JsonObject body = new JsonObject();
+        body.addProperty("message", e.getMessage());
+        return gson.toJson(body);
     }
 
     private void sendText(HttpExchange h, int code, String text) throws IOException {
         byte[] response = text.getBytes(StandardCharsets.UTF_8);
         h.getResponseHeaders().add("Content-Type", "application/json");
         h.sendResponseHeaders(code, response.length);
-        h.getResponseBody().write(response);
+        try (OutputStream os = h.getResponseBody()) {
+            os.write(response);
+        }
     }
 }
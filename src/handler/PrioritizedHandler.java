@@ -2,11 +2,20 @@ package handler;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
+import exception.BadRequestException;
+import exception.NotFoundException;
 import model.Task;
 import service.task.TaskManager;
 
 import java.io.IOException;
-import java.util.TreeSet;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class PrioritizedHandler extends AbstractHandler {
 
@@ -24,13 +33,86 @@ public class PrioritizedHandler extends AbstractHandler {
     public void handle(HttpExchange exchange) throws IOException {
         try {
             if (exchange.getRequestMethod().equals("GET")) {
-                TreeSet<Task> prioritizedTasks = manager.getPrioritizedTasks();
-                String response = gson.toJson(prioritizedTasks);
-
-                sendText(exchange, 200, response);
+                String[] pathParts = exchange.getRequestURI().getPath().split("/");
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                switch (pathParts.length) {
+                    case 2:
+                        getPrioritized(exchange, parameters);
+                        break;
+                    case 3:
+                        if (!pathParts[2].equals("free")) {
+                            throw new NotFoundException("Неверный путь");
+                        }
+                        getFreeSlot(exchange, parameters);
+                        break;
+                    default:
+                        throw new NotFoundException("Неверный путь");
+                }
             }
         } catch (Exception e) {
             errorHandler.handle(exchange, e);
         }
     }
+
+    private void getPrioritized(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        if (parameters.isEmpty()) {
+            List<Task> prioritizedTasks = manager.getPrioritizedTasks();
+            sendText(exchange, 200, gson.toJson(prioritizedTasks));
+            return;
+        }
+        if (!parameters.containsKey("from") || !parameters.containsKey("to")) {
+            throw new BadRequestException("Необходимо указать параметры from и to.");
+        }
+        List<Task> tasks = manager.getPrioritizedTasks(parseTime(parameters, "from"), parseTime(parameters, "to"));
+        sendText(exchange, 200, gson.toJson(tasks));
+    }
+
+    private void getFreeSlot(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        if (!parameters.containsKey("duration") || !parameters.containsKey("after")) {
+            throw new BadRequestException("Необходимо указать параметры duration и after.");
+        }
+        long duration;
+        try {
+            duration = Long.parseLong(parameters.get("duration"));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Неверное значение параметра duration: " + parameters.get("duration"), e);
+        }
+        LocalDateTime start = manager.findFreeSlot(duration, parseTime(parameters, "after"),
+                parameters.containsKey("before") ? parseTime(parameters, "before") : null);
+        Map<String, LocalDateTime> slot = new LinkedHashMap<>();
+        slot.put("startTime", start);
+        slot.put("endTime", start.plusMinutes(duration));
+        sendText(exchange, 200, gson.toJson(slot));
+    }
+
+    // Запрос делится по & до раскодирования, чтобы закодированные %26 и %3D оставались внутри значений
+    private Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+            }
+        }
+        return parameters;
+    }
+
+    private LocalDateTime parseTime(Map<String, String> parameters, String name) {
+        try {
+            return LocalDateTime.parse(parameters.get(name));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Неверное значение параметра " + name + ": " + parameters.get(name), e);
+        }
+    }
+
+    private String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Неверная кодировка параметра запроса: " + value, e);
+        }
+    }
 }
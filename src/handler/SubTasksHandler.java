@@ -52,6 +52,7 @@ public class SubTasksHandler extends AbstractHandler {
                 case 3:
                     SubTask subTask = manager.getSubTaskById(Integer.parseInt(pathParts[2]));
                     if (subTask != null) {
+                        setETag(exchange, manager, subTask);
                         sendText(exchange, 200, gson.toJson(subTask));
                     } else {
                         throw new NotFoundException("Подзадачи с идентификатором " + pathParts[2] + " не существует.");
@@ -76,7 +77,9 @@ public class SubTasksHandler extends AbstractHandler {
                     sendText(exchange, 201, "Создана новая подзадача под id: " + newSubTask.getId() + ".");
                     break;
                 case 3:
+                    applyIfMatch(exchange, manager, subTask);
                     manager.updateSubTask(subTask);
+                    setETag(exchange, manager, subTask);
                     sendText(exchange, 200, "Подзадача под id: " + subTask.getId() + " успешно обновлена.");
                     break;
                 default:
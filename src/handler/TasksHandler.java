@@ -51,6 +51,7 @@ public class TasksHandler extends AbstractHandler {
                 case 3:
                     Task task = manager.getTaskById(Integer.parseInt(pathParts[2]));
                     if (task != null) {
+                        setETag(exchange, manager, task);
                         sendText(exchange, 200, gson.toJson(task));
                     } else {
                         throw new NotFoundException("Задачи с идентификатором " + pathParts[2] + " не существует.");
@@ -75,7 +76,9 @@ public class TasksHandler extends AbstractHandler {
                     sendText(exchange, 201, "Создана новая задача под id: " + newTask.getId());
                     break;
                 case 3:
+                    applyIfMatch(exchange, manager, task);
                     manager.updateTask(task);
+                    setETag(exchange, manager, task);
                     sendText(exchange, 200, "Задача под id: " + task.getId() + " успешно обновлена");
                     break;
                 default:
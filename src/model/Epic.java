@@ -1,36 +1,58 @@
 package model;
 
+import util.IntSet;
 import util.TaskStatus;
 import util.TaskType;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 public class Epic extends Task {
-    private final List<Integer> subTaskIds;
+    private IntSet subTaskIds;
     private LocalDateTime endTime;
+    private transient EpicAggregate aggregate;
 
     public Epic(String name, String description) {
         super(name, description);
-        this.subTaskIds = new ArrayList<>();
+        this.subTaskIds = new IntSet();
     }
 
     public Epic(int id, String name, TaskStatus status, String description, List<Integer> subTaskIds, LocalDateTime startTime, Long duration) {
         super(id, name, status, description, startTime, duration);
-        this.subTaskIds = subTaskIds;
+        this.subTaskIds = new IntSet(subTaskIds.size());
+        subTaskIds.forEach(this.subTaskIds::add);
     }
 
-    public List<Integer> getSubTaskIds() {
+    // Эпик из JSON без поля subTaskIds получает пустое множество при первом обращении
+    public IntSet getSubTaskIds() {
+        if (subTaskIds == null) {
+            subTaskIds = new IntSet();
+        }
         return subTaskIds;
     }
 
     public void addSubTaskById(int id) {
-        subTaskIds.add(id);
+        getSubTaskIds().add(id);
     }
 
-    public void removeSubTaskById(Integer id) {
-        subTaskIds.remove(id);
+    public void removeSubTaskById(int id) {
+        getSubTaskIds().remove(id);
+    }
+
+    // Учитывает новую или изменённую подзадачу и обновляет статус и время эпика
+    public void applySubTask(SubTask subTask) {
+        aggregate().put(subTask);
+        refresh();
+    }
+
+    public void discardSubTask(int id) {
+        aggregate().remove(id);
+        refresh();
+    }
+
+    public void discardSubTasks() {
+        aggregate().clear();
+        refresh();
     }
 
     public TaskType getType() {
@@ -46,6 +68,21 @@ public class Epic extends Task {
         this.endTime = endTime;
     }
 
+    // Эпики из JSON создаются без вызова конструктора, поэтому агрегат создаётся при первом обращении
+    private EpicAggregate aggregate() {
+        if (aggregate == null) {
+            aggregate = new EpicAggregate();
+        }
+        return aggregate;
+    }
+
+    private void refresh() {
+        setStatus(aggregate.status());
+        setStartTime(aggregate.startTime());
+        setEndTime(aggregate.endTime());
+        setDuration(aggregate.duration());
+    }
+
     @Override
     public String toString() {
         return "Epic{" +
@@ -0,0 +1,87 @@
+package model;
+
+import util.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Статус и время эпика, поддерживаемые приращениями: вклад каждой подзадачи запоминается,
+// поэтому её изменение или удаление обходится в O(log k) без обхода остальных подзадач
+class EpicAggregate {
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private long totalDuration;
+
+    void put(SubTask subTask) {
+        remove(subTask.getId());
+        Contribution contribution = new Contribution(subTask.getStatus(), subTask.getStartTime(),
+                subTask.getEndTime(), subTask.getDuration());
+        contributions.put(subTask.getId(), contribution);
+        statusCounts[contribution.status().ordinal()]++;
+        increment(startTimes, contribution.startTime());
+        increment(endTimes, contribution.endTime());
+        totalDuration += contribution.duration();
+    }
+
+    void remove(int id) {
+        Contribution contribution = contributions.remove(id);
+        if (contribution == null) {
+            return;
+        }
+        statusCounts[contribution.status().ordinal()]--;
+        decrement(startTimes, contribution.startTime());
+        decrement(endTimes, contribution.endTime());
+        totalDuration -= contribution.duration();
+    }
+
+    void clear() {
+        contributions.clear();
+        startTimes.clear();
+        endTimes.clear();
+        Arrays.fill(statusCounts, 0);
+        totalDuration = 0;
+    }
+
+    TaskStatus status() {
+        int total = contributions.size();
+        if (total == statusCounts[TaskStatus.NEW.ordinal()]) {
+            return TaskStatus.NEW;
+        }
+        if (total == statusCounts[TaskStatus.DONE.ordinal()]) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    LocalDateTime startTime() {
+        return startTimes.isEmpty() ? null : startTimes.firstKey();
+    }
+
+    LocalDateTime endTime() {
+        return endTimes.isEmpty() ? null : endTimes.lastKey();
+    }
+
+    long duration() {
+        return totalDuration;
+    }
+
+    private static void increment(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.merge(time, 1, Integer::sum);
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        if (time != null) {
+            times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private record Contribution(TaskStatus status, LocalDateTime startTime, LocalDateTime endTime, long duration) {
+    }
+}
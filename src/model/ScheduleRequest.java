@@ -0,0 +1,17 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+// Задача без времени начала, которую нужно разместить в расписании; deadline может отсутствовать
+public record ScheduleRequest(int taskId, int priority, LocalDateTime deadline) {
+    // Сначала ближайший срок, затем больший приоритет
+    public static final Comparator<ScheduleRequest> ORDER = Comparator
+            .comparing(ScheduleRequest::deadline, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Comparator.comparingInt(ScheduleRequest::priority).reversed())
+            .thenComparingInt(ScheduleRequest::taskId);
+
+    public ScheduleRequest(int taskId) {
+        this(taskId, 0, null);
+    }
+}
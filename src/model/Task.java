@@ -5,30 +5,39 @@ import util.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.time.ZoneOffset;
 
 public class Task {
     private int id;
     private String name;
     private TaskStatus status;
     private String description;
-    private Duration duration;
-    private LocalDateTime startTime;
+    // Время хранится примитивами: начало - секунды от эпохи и наносекунды, длительность - минуты.
+    // Нулевые значения флагов означают "не задано", поэтому создание экземпляра из JSON без
+    // конструктора даёт задачу без времени. В JSON поля пишет TaskAdapterFactory
+    private transient long startSecond;
+    private transient int startNano;
+    private transient boolean hasStartTime;
+    private transient long duration;
+    private transient boolean hasDuration;
+    // Растёт при каждом изменении задачи в менеджере, 0 - версия не задана.
+    // В JSON не пишется: клиенты получают её в заголовке ETag
+    private transient long version;
 
     public Task(String name, String description) {
         this.name = name;
         this.status = TaskStatus.NEW;
         this.description = description;
-        this.startTime = null;
-        this.duration = null;
     }
 
     public Task(String name, String description, LocalDateTime startTime, Long duration) {
         this.name = name;
         this.status = TaskStatus.NEW;
         this.description = description;
-        this.startTime = startTime;
-        this.duration = Duration.ofMinutes(duration);
+        assignStartTime(startTime);
+        if (duration != null) {
+            assignDuration(duration);
+        }
     }
 
     public Task(int id, String name, TaskStatus status, String description, LocalDateTime startTime, Long duration) {
@@ -36,8 +45,10 @@ public class Task {
         this.name = name;
         this.status = status;
         this.description = description;
-        this.startTime = startTime;
-        this.duration = Duration.ofMinutes(duration);
+        assignStartTime(startTime);
+        if (duration != null) {
+            assignDuration(duration);
+        }
     }
 
     public Integer getId() {
@@ -80,26 +91,66 @@ public class Task {
         return TaskType.TASK;
     }
 
-    public Long getDuration() {
-        return Optional.ofNullable(duration)
-                .map(Duration::toMinutes)
-                .orElse(0L);
+    public long getDuration() {
+        return duration;
     }
 
-    public void setDuration(Long minutes) {
-        this.duration = Duration.ofMinutes(minutes);
+    public boolean hasDuration() {
+        return hasDuration;
+    }
+
+    public void setDuration(long minutes) {
+        assignDuration(minutes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return hasStartTime ? LocalDateTime.ofEpochSecond(startSecond, startNano, ZoneOffset.UTC) : null;
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        assignStartTime(startTime);
     }
 
     public LocalDateTime getEndTime() {
-        return (startTime != null && duration != null) ? startTime.plus(duration) : null;
+        return hasStartTime && hasDuration
+                ? LocalDateTime.ofEpochSecond(getEndSecond(), startNano, ZoneOffset.UTC) : null;
+    }
+
+    // Примитивные границы для сравнений без создания объектов; имеют смысл при hasStartTime()
+    public boolean hasStartTime() {
+        return hasStartTime;
+    }
+
+    public long getStartSecond() {
+        return startSecond;
+    }
+
+    public int getStartNano() {
+        return startNano;
+    }
+
+    public long getEndSecond() {
+        return startSecond + duration * 60;
+    }
+
+    // Конструкторы не вызывают переопределяемые сеттеры
+    private void assignStartTime(LocalDateTime startTime) {
+        hasStartTime = startTime != null;
+        startSecond = hasStartTime ? startTime.toEpochSecond(ZoneOffset.UTC) : 0;
+        startNano = hasStartTime ? startTime.getNano() : 0;
+    }
+
+    private void assignDuration(long minutes) {
+        duration = minutes;
+        hasDuration = true;
     }
 
     @Override
@@ -109,8 +160,8 @@ public class Task {
                 ", name='" + name + '\'' +
                 ", status=" + status.getName() +
                 ", description='" + description + '\'' +
-                ", duration=" + duration +
-                ", startTime=" + startTime +
+                ", duration=" + (hasDuration ? Duration.ofMinutes(duration) : null) +
+                ", startTime=" + getStartTime() +
                 '}';
     }
 }
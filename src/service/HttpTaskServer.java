@@ -1,25 +1,45 @@
 package service;
 
 import adapter.DurationAdapter;
+import adapter.IntSetAdapter;
 import adapter.LocalDateTimeAdapter;
+import adapter.TaskAdapterFactory;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.sun.net.httpserver.HttpServer;
 import handler.*;
 import model.Task;
 import service.task.TaskManager;
+import util.ExecutorMode;
+import util.IntSet;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     public static final int PORT = 8080;
+    private static final int QUEUE_PER_THREAD = 16;
 
     private final HttpServer httpServer;
+    private final ExecutorService executor;
 
     public HttpTaskServer(TaskManager manager) {
+        this(manager, ExecutorMode.DISPATCHER, 0);
+    }
+
+    // В режимах с несколькими потоками менеджер должен быть потокобезопасным (Managers.getConcurrent()).
+    // poolSize учитывается только для BOUNDED_POOL
+    public HttpTaskServer(TaskManager manager, ExecutorMode mode, int poolSize) {
+        if (mode == ExecutorMode.BOUNDED_POOL && poolSize <= 0) {
+            throw new IllegalArgumentException("Размер пула потоков должен быть положительным.");
+        }
         Gson gson = getGson();
         ErrorHandler errorHandler = new ErrorHandler(gson);
         try {
@@ -33,6 +53,8 @@ public class HttpTaskServer {
         httpServer.createContext("/epics", new EpicsHandler(manager, errorHandler, gson));
         httpServer.createContext("/history", new HistoryHandler(manager, errorHandler, gson));
         httpServer.createContext("/prioritized", new PrioritizedHandler(manager, errorHandler, gson));
+        executor = createExecutor(mode, poolSize);
+        httpServer.setExecutor(executor);
     }
 
     public static void main(String[] args) {
@@ -51,12 +73,27 @@ public class HttpTaskServer {
 
     public void stop() {
         httpServer.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    // Переполненная очередь пула выполняет запрос в потоке-диспетчере, притормаживая приём новых соединений
+    private static ExecutorService createExecutor(ExecutorMode mode, int poolSize) {
+        return switch (mode) {
+            case DISPATCHER -> null;
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+            case BOUNDED_POOL -> new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(poolSize * QUEUE_PER_THREAD), new ThreadPoolExecutor.CallerRunsPolicy());
+        };
     }
 
     public static Gson getGson() {
         GsonBuilder gsonBuilder = new GsonBuilder();
         gsonBuilder.registerTypeAdapter(Duration.class, new DurationAdapter());
         gsonBuilder.registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter());
+        gsonBuilder.registerTypeAdapter(IntSet.class, new IntSetAdapter());
+        gsonBuilder.registerTypeAdapterFactory(new TaskAdapterFactory());
         return gsonBuilder.create();
     }
 }
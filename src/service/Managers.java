@@ -2,8 +2,15 @@ package service;
 
 import service.history.HistoryManager;
 import service.history.InMemoryHistoryManager;
+import service.task.ColumnarTaskManager;
+import service.task.ConcurrentTaskManager;
 import service.task.FileBackedTaskManager;
+import service.task.KeyValueTaskManager;
+import service.task.PipelinedTaskManager;
 import service.task.TaskManager;
+import util.StringStorage;
+
+import java.io.File;
 
 public class Managers {
 
@@ -11,6 +18,22 @@ public class Managers {
         return new FileBackedTaskManager();
     }
 
+    public static TaskManager getKeyValue(File file) {
+        return new KeyValueTaskManager(file);
+    }
+
+    public static TaskManager getColumnar(StringStorage storage) {
+        return new ColumnarTaskManager(storage);
+    }
+
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static TaskManager getPipelined() {
+        return new PipelinedTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
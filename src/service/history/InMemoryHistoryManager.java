@@ -1,20 +1,20 @@
 package service.history;
 
 import model.Task;
+import util.IntMap;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private final HashMap<Integer, Node> taskHistory;
+    private final IntMap<Node> taskHistory;
     private Node first;
     private Node last;
 
     public InMemoryHistoryManager() {
-        this.taskHistory = new HashMap<>();
+        this.taskHistory = new IntMap<>();
     }
 
     @Override
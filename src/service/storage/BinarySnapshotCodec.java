@@ -0,0 +1,167 @@
+package service.storage;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinarySnapshotCodec implements SnapshotCodec {
+    // Заголовок: сигнатура, версия, число записей, длина истории, смещение таблицы строк,
+    // номер последней записи журнала (с версии 2)
+    private static final int MAGIC = 0x4B4E4231;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 32;
+    private static final int SEQUENCE_VERSION = 2;
+    private static final int LEGACY_VERSION = 1;
+    private static final int LEGACY_HEADER_SIZE = 24;
+    // Запись: id, тип, статус, выравнивание, epicId, начало (секунды и наносекунды), длительность, имя, описание,
+    // версия задачи (с версии 3)
+    private static final int RECORD_SIZE = 48;
+    private static final int LEGACY_RECORD_SIZE = 40;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_EPIC = -1;
+    private static final int NULL_STRING = -1;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    @Override
+    public void write(File file, List<Task> tasks, List<Integer> history, long sequence) {
+        try {
+            ByteArrayOutputStream strings = new ByteArrayOutputStream();
+            DataOutputStream stringsOutput = new DataOutputStream(strings);
+            ByteBuffer records = ByteBuffer.allocate(tasks.size() * RECORD_SIZE);
+            for (Task task : tasks) {
+                LocalDateTime startTime = task.getStartTime();
+                Integer epicId = task.getEpicId();
+                records.putInt(task.getId())
+                        .put((byte) task.getType().ordinal())
+                        .put((byte) task.getStatus().ordinal())
+                        .putShort((short) 0)
+                        .putInt(epicId == null ? NO_EPIC : epicId)
+                        .putLong(startTime == null ? NO_TIME : startTime.toEpochSecond(ZoneOffset.UTC))
+                        .putInt(startTime == null ? 0 : startTime.getNano())
+                        .putLong(task.getDuration())
+                        .putInt(writeString(stringsOutput, task.getName()))
+                        .putInt(writeString(stringsOutput, task.getDescription()))
+                        .putLong(task.getVersion());
+            }
+            records.flip();
+
+            ByteBuffer historyIds = ByteBuffer.allocate(history.size() * Integer.BYTES);
+            history.forEach(historyIds::putInt);
+            historyIds.flip();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(tasks.size())
+                    .putInt(history.size())
+                    .putLong(HEADER_SIZE + (long) records.limit() + historyIds.limit())
+                    .putLong(sequence);
+            header.flip();
+
+            ByteBuffer[] buffers = {header, records, historyIds, ByteBuffer.wrap(strings.toByteArray())};
+            long remaining = HEADER_SIZE + (long) records.limit() + historyIds.limit() + strings.size();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи файла.", e);
+        }
+    }
+
+    @Override
+    public Snapshot read(File file) {
+        List<Task> tasks = new ArrayList<>();
+        List<Integer> history = new ArrayList<>();
+        long sequence;
+        if (file.length() == 0) {
+            return new Snapshot(tasks, history);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int version = buffer.getInt(4);
+            if (buffer.getInt(0) != MAGIC || version < LEGACY_VERSION || version > VERSION) {
+                throw new IOException("Файл " + file + " не является бинарным снимком.");
+            }
+            int headerSize = version >= SEQUENCE_VERSION ? HEADER_SIZE : LEGACY_HEADER_SIZE;
+            int recordSize = version == VERSION ? RECORD_SIZE : LEGACY_RECORD_SIZE;
+            int count = buffer.getInt(8);
+            int historyCount = buffer.getInt(12);
+            int stringsOffset = (int) buffer.getLong(16);
+            sequence = version >= SEQUENCE_VERSION ? buffer.getLong(24) : 0;
+
+            for (int i = 0; i < count; i++) {
+                int offset = headerSize + i * recordSize;
+                int id = buffer.getInt(offset);
+                TaskType type = TYPES[buffer.get(offset + 4)];
+                TaskStatus status = STATUSES[buffer.get(offset + 5)];
+                int epicId = buffer.getInt(offset + 8);
+                long startSeconds = buffer.getLong(offset + 12);
+                LocalDateTime startTime = startSeconds == NO_TIME ? null
+                        : LocalDateTime.ofEpochSecond(startSeconds, buffer.getInt(offset + 20), ZoneOffset.UTC);
+                long duration = buffer.getLong(offset + 24);
+                String name = readString(buffer, stringsOffset + buffer.getInt(offset + 32));
+                String description = readString(buffer, stringsOffset + buffer.getInt(offset + 36));
+
+                Task task = switch (type) {
+                    case TASK -> new Task(id, name, status, description, startTime, duration);
+                    case SUBTASK -> new SubTask(epicId, id, name, status, description, startTime, duration);
+                    case EPIC -> new Epic(id, name, status, description, new ArrayList<>(), startTime, duration);
+                };
+                task.setVersion(version == VERSION ? buffer.getLong(offset + 40) : 0);
+                tasks.add(task);
+            }
+
+            int historyOffset = headerSize + count * recordSize;
+            for (int i = 0; i < historyCount; i++) {
+                history.add(buffer.getInt(historyOffset + i * Integer.BYTES));
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении файла.", e);
+        }
+        return new Snapshot(tasks, history, sequence);
+    }
+
+    private static int writeString(DataOutputStream output, String value) throws IOException {
+        int offset = output.size();
+        if (value == null) {
+            output.writeInt(NULL_STRING);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        return offset;
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
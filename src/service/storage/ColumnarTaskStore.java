@@ -0,0 +1,332 @@
+package service.storage;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import util.IntSet;
+import util.StringStorage;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+// Поля задач лежат в параллельных массивах по строкам, имена и описания - в таблице строк
+// (в куче или вне её), в столбцах только ссылки на них.
+// Фильтры и агрегаты проходят по нужным столбцам без обращения к объектам Task,
+// а сами задачи собираются только при выдаче. Удалённая строка замещается последней,
+// поэтому столбцы остаются плотными
+public class ColumnarTaskStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int ABSENT = -1;
+    private static final int NO_EPIC = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long NO_DURATION = Long.MIN_VALUE;
+    private static final long COMPACTION_THRESHOLD = 1 << 20;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final StringStorage storage;
+    private int[] rowById = new int[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private int[] epicIds = new int[INITIAL_CAPACITY];
+    private long[] startSeconds = new long[INITIAL_CAPACITY];
+    private int[] startNanos = new int[INITIAL_CAPACITY];
+    private long[] durations = new long[INITIAL_CAPACITY];
+    private long[] endSeconds = new long[INITIAL_CAPACITY];
+    private int[] endNanos = new int[INITIAL_CAPACITY];
+    private long[] names = new long[INITIAL_CAPACITY];
+    private long[] descriptions = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private IntSet[] subTaskIds = new IntSet[INITIAL_CAPACITY];
+    private StringTable strings;
+    private int size;
+
+    public ColumnarTaskStore(StringStorage storage) {
+        this.storage = storage;
+        this.strings = StringTable.of(storage);
+        Arrays.fill(rowById, ABSENT);
+    }
+
+    public ColumnarTaskStore() {
+        this(StringStorage.HEAP);
+    }
+
+    public void put(Task task) {
+        int id = task.getId();
+        int row = row(id);
+        if (row == ABSENT) {
+            row = size++;
+            ensureCapacity(size);
+            ensureId(id);
+            rowById[id] = row;
+        } else {
+            strings.release(names[row]);
+            strings.release(descriptions[row]);
+        }
+        ids[row] = id;
+        types[row] = (byte) task.getType().ordinal();
+        statuses[row] = (byte) task.getStatus().ordinal();
+        epicIds[row] = task.getEpicId() == null ? NO_EPIC : task.getEpicId();
+        startSeconds[row] = task.hasStartTime() ? task.getStartSecond() : NO_TIME;
+        startNanos[row] = task.getStartNano();
+        durations[row] = task.hasDuration() ? task.getDuration() : NO_DURATION;
+        names[row] = strings.put(task.getName());
+        descriptions[row] = strings.put(task.getDescription());
+        versions[row] = task.getVersion();
+        if (task instanceof Epic epic) {
+            LocalDateTime endTime = epic.getEndTime();
+            endSeconds[row] = endTime == null ? NO_TIME : endTime.toEpochSecond(ZoneOffset.UTC);
+            endNanos[row] = endTime == null ? 0 : endTime.getNano();
+            IntSet children = new IntSet(epic.getSubTaskIds().size());
+            epic.getSubTaskIds().forEach(children::add);
+            subTaskIds[row] = children;
+        } else {
+            subTaskIds[row] = null;
+        }
+        compactStrings();
+    }
+
+    public Task get(int id) {
+        int row = row(id);
+        return row == ABSENT ? null : materialize(row);
+    }
+
+    public TaskType type(int id) {
+        int row = row(id);
+        return row == ABSENT ? null : TYPES[types[row]];
+    }
+
+    public long version(int id) {
+        int row = row(id);
+        return row == ABSENT ? 0 : versions[row];
+    }
+
+    public boolean contains(int id) {
+        return row(id) != ABSENT;
+    }
+
+    public void remove(int id) {
+        int row = row(id);
+        if (row == ABSENT) {
+            return;
+        }
+        strings.release(names[row]);
+        strings.release(descriptions[row]);
+        int last = --size;
+        if (row != last) {
+            move(last, row);
+            rowById[ids[row]] = row;
+        }
+        subTaskIds[last] = null;
+        rowById[id] = ABSENT;
+        compactStrings();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] ids(TaskType type) {
+        return select(type, null, null, null);
+    }
+
+    // id задач типа type со статусом status и началом в [from, to); null - без ограничения
+    public int[] select(TaskType type, TaskStatus status, LocalDateTime from, LocalDateTime to) {
+        byte typeCode = (byte) type.ordinal();
+        int statusCode = status == null ? -1 : status.ordinal();
+        boolean timed = from != null || to != null;
+        long fromSecond = from == null ? Long.MIN_VALUE : from.toEpochSecond(ZoneOffset.UTC);
+        int fromNano = from == null ? 0 : from.getNano();
+        long toSecond = to == null ? Long.MAX_VALUE : to.toEpochSecond(ZoneOffset.UTC);
+        int toNano = to == null ? 0 : to.getNano();
+
+        int[] result = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (types[row] != typeCode || statusCode >= 0 && statuses[row] != statusCode) {
+                continue;
+            }
+            if (timed && (startSeconds[row] == NO_TIME
+                    || compare(startSeconds[row], startNanos[row], fromSecond, fromNano) < 0
+                    || to != null && compare(startSeconds[row], startNanos[row], toSecond, toNano) >= 0)) {
+                continue;
+            }
+            result[count++] = ids[row];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Количество задач типа type по статусам, индекс - порядковый номер статуса
+    public int[] countByStatus(TaskType type) {
+        byte typeCode = (byte) type.ordinal();
+        int[] counts = new int[STATUSES.length];
+        for (int row = 0; row < size; row++) {
+            if (types[row] == typeCode) {
+                counts[statuses[row]]++;
+            }
+        }
+        return counts;
+    }
+
+    public long totalDuration(TaskType type) {
+        byte typeCode = (byte) type.ordinal();
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            if (types[row] == typeCode && durations[row] != NO_DURATION) {
+                total += durations[row];
+            }
+        }
+        return total;
+    }
+
+    // Статус эпика по статусам подзадач из столбца; отсутствующие подзадачи не учитываются
+    public TaskStatus aggregateStatus(IntSet subTaskIds) {
+        int[] counts = new int[STATUSES.length];
+        int total = 0;
+        for (int id : subTaskIds.toArray()) {
+            int row = row(id);
+            if (row != ABSENT) {
+                counts[statuses[row]]++;
+                total++;
+            }
+        }
+        if (total == counts[TaskStatus.NEW.ordinal()]) {
+            return TaskStatus.NEW;
+        }
+        if (total == counts[TaskStatus.DONE.ordinal()]) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    // Начало, конец и суммарная длительность эпика по столбцам его подзадач
+    public void aggregateTimes(IntSet subTaskIds, Epic epic) {
+        long minStart = NO_TIME;
+        int minStartNano = 0;
+        long maxEnd = NO_TIME;
+        int maxEndNano = 0;
+        long totalDuration = 0;
+        for (int id : subTaskIds.toArray()) {
+            int row = row(id);
+            if (row == ABSENT) {
+                continue;
+            }
+            long start = startSeconds[row];
+            int nano = startNanos[row];
+            long duration = durations[row];
+            if (start != NO_TIME && (minStart == NO_TIME || compare(start, nano, minStart, minStartNano) < 0)) {
+                minStart = start;
+                minStartNano = nano;
+            }
+            if (start != NO_TIME && duration != NO_DURATION) {
+                long end = start + duration * 60;
+                if (maxEnd == NO_TIME || compare(end, nano, maxEnd, maxEndNano) > 0) {
+                    maxEnd = end;
+                    maxEndNano = nano;
+                }
+            }
+            if (duration != NO_DURATION) {
+                totalDuration += duration;
+            }
+        }
+        epic.setStartTime(time(minStart, minStartNano));
+        epic.setEndTime(time(maxEnd, maxEndNano));
+        epic.setDuration(totalDuration);
+    }
+
+    private Task materialize(int row) {
+        int id = ids[row];
+        String name = strings.get(names[row]);
+        String description = strings.get(descriptions[row]);
+        TaskStatus status = STATUSES[statuses[row]];
+        LocalDateTime startTime = time(startSeconds[row], startNanos[row]);
+        Long duration = durations[row] == NO_DURATION ? null : durations[row];
+        Task task = switch (TYPES[types[row]]) {
+            case TASK -> new Task(id, name, status, description, startTime, duration);
+            case SUBTASK -> new SubTask(epicIds[row], id, name, status, description, startTime, duration);
+            case EPIC -> {
+                Epic epic = new Epic(id, name, status, description, List.of(), startTime, duration);
+                subTaskIds[row].forEach(epic::addSubTaskById);
+                epic.setEndTime(time(endSeconds[row], endNanos[row]));
+                yield epic;
+            }
+        };
+        task.setVersion(versions[row]);
+        return task;
+    }
+
+    // Строки вне кучи освобождаются только переписыванием живых строк в новую таблицу
+    private void compactStrings() {
+        if (strings.garbage() < COMPACTION_THRESHOLD || strings.garbage() * 2 < strings.used()) {
+            return;
+        }
+        StringTable compacted = StringTable.of(storage);
+        for (int row = 0; row < size; row++) {
+            names[row] = compacted.put(strings.get(names[row]));
+            descriptions[row] = compacted.put(strings.get(descriptions[row]));
+        }
+        strings = compacted;
+    }
+
+    private void move(int from, int to) {
+        ids[to] = ids[from];
+        types[to] = types[from];
+        statuses[to] = statuses[from];
+        epicIds[to] = epicIds[from];
+        startSeconds[to] = startSeconds[from];
+        startNanos[to] = startNanos[from];
+        durations[to] = durations[from];
+        endSeconds[to] = endSeconds[from];
+        endNanos[to] = endNanos[from];
+        names[to] = names[from];
+        descriptions[to] = descriptions[from];
+        versions[to] = versions[from];
+        subTaskIds[to] = subTaskIds[from];
+    }
+
+    private int row(int id) {
+        return id >= 0 && id < rowById.length ? rowById[id] : ABSENT;
+    }
+
+    private void ensureId(int id) {
+        if (id >= rowById.length) {
+            int previous = rowById.length;
+            rowById = Arrays.copyOf(rowById, Math.max(id + 1, previous * 2));
+            Arrays.fill(rowById, previous, rowById.length, ABSENT);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        epicIds = Arrays.copyOf(epicIds, newCapacity);
+        startSeconds = Arrays.copyOf(startSeconds, newCapacity);
+        startNanos = Arrays.copyOf(startNanos, newCapacity);
+        durations = Arrays.copyOf(durations, newCapacity);
+        endSeconds = Arrays.copyOf(endSeconds, newCapacity);
+        endNanos = Arrays.copyOf(endNanos, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        descriptions = Arrays.copyOf(descriptions, newCapacity);
+        versions = Arrays.copyOf(versions, newCapacity);
+        subTaskIds = Arrays.copyOf(subTaskIds, newCapacity);
+    }
+
+    private static LocalDateTime time(long second, int nano) {
+        return second == NO_TIME ? null : LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+    }
+
+    private static int compare(long second, int nano, long otherSecond, int otherNano) {
+        int result = Long.compare(second, otherSecond);
+        return result != 0 ? result : Integer.compare(nano, otherNano);
+    }
+}
@@ -0,0 +1,5 @@
+package service.storage;
+
+public record CompactionStats(boolean running, long compactions, long failures, long lastDurationMillis,
+                              int lastTaskCount, int lastFoldedRecords, long lastSnapshotBytes) {
+}
@@ -0,0 +1,96 @@
+package service.storage;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import model.Task;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+public class CsvSnapshotCodec implements SnapshotCodec {
+    private static final String HEADER = "id,type,name,status,description,epicId";
+    // Номер последней записи журнала, если он есть, дописывается к заголовку
+    private static final String SEQUENCE = ",sequence=";
+
+    public static String toString(Task task) {
+        return task.getId() + "," + task.getType() + "," + quote(task.getName()) + "," + task.getStatus() + ","
+                + quote(task.getDescription()) + "," + task.getEpicId() + "," + task.getStartTime() + ","
+                + task.getDuration() + "," + task.getVersion();
+    }
+
+    public static Task fromString(String value) {
+        try (CsvTaskReader reader = new CsvTaskReader(value)) {
+            return reader.readTask();
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при разборе строки: " + value, e);
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        boolean quoted = value.equals("null");
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quoted ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    private static String historyToString(List<Integer> history) {
+        return history.stream()
+                .map(Objects::toString)
+                .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public void write(File file, List<Task> tasks, List<Integer> history, long sequence) {
+        try (final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            writer.append(HEADER);
+            if (sequence > 0) {
+                writer.append(SEQUENCE).append(String.valueOf(sequence));
+            }
+            for (Task task : tasks) {
+                writer.newLine();
+                writer.append(toString(task));
+            }
+            String historyIds = historyToString(history);
+            if (!historyIds.isEmpty()) {
+                writer.newLine();
+                writer.newLine();
+                writer.append(historyIds);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи файла.", e);
+        }
+    }
+
+    @Override
+    public Snapshot read(File file) {
+        List<Task> tasks = new ArrayList<>();
+        List<Integer> history;
+        long sequence = 0;
+        try (final CsvTaskReader reader = new CsvTaskReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            int position = header == null ? -1 : header.indexOf(SEQUENCE);
+            if (position >= 0) {
+                sequence = Long.parseLong(header.substring(position + SEQUENCE.length()));
+            }
+            Task task;
+            while ((task = reader.readTask()) != null) {
+                tasks.add(task);
+            }
+            history = reader.readIds();
+        } catch (IOException | NumberFormatException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении файла.", e);
+        }
+        return new Snapshot(tasks, history, sequence);
+    }
+}
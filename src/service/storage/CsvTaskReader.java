@@ -0,0 +1,346 @@
+package service.storage;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvTaskReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int EOF = -1;
+    private static final char[] NULL = "null".toCharArray();
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final char[][] TYPE_NAMES = names(TYPES);
+    private static final char[][] STATUS_NAMES = names(STATUSES);
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final char[] token = new char[32];
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private int limit;
+
+    public CsvTaskReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    public CsvTaskReader(String value) {
+        this.reader = null;
+        this.buffer = value.toCharArray();
+        this.limit = buffer.length;
+    }
+
+    public boolean skipLine() throws IOException {
+        int c = peek();
+        if (c == EOF) {
+            return false;
+        }
+        while (c != EOF && c != '\n' && c != '\r') {
+            position++;
+            c = peek();
+        }
+        skipLineEnd();
+        return true;
+    }
+
+    public String readLine() throws IOException {
+        int c = peek();
+        if (c == EOF) {
+            return null;
+        }
+        text.setLength(0);
+        while (c != EOF && c != '\n' && c != '\r') {
+            text.append((char) c);
+            position++;
+            c = peek();
+        }
+        skipLineEnd();
+        return text.toString();
+    }
+
+    public Task readTask() throws IOException {
+        int c = peek();
+        if (c == EOF) {
+            return null;
+        }
+        if (c == '\n' || c == '\r') {
+            skipLineEnd();
+            return null;
+        }
+
+        int id = readInt();
+        expect(',');
+        TaskType type = TYPES[readEnum(TYPE_NAMES)];
+        expect(',');
+        String name = readString();
+        expect(',');
+        TaskStatus status = STATUSES[readEnum(STATUS_NAMES)];
+        expect(',');
+        String description = readString();
+        expect(',');
+        int epicId = readNull() ? -1 : readInt();
+        expect(',');
+        LocalDateTime startTime = readNull() ? null : readDateTime();
+        expect(',');
+        Long duration = readNull() ? null : readLong();
+        // Версия задачи пишется с появлением условных обновлений; в строках старого формата её нет
+        long version = 0;
+        if (peek() == ',') {
+            position++;
+            version = readLong();
+        }
+        skipLineEnd();
+
+        Task task = switch (type) {
+            case TASK -> new Task(id, name, status, description, startTime, duration);
+            case SUBTASK -> new SubTask(epicId, id, name, status, description, startTime, duration);
+            case EPIC -> new Epic(id, name, status, description, new ArrayList<>(), startTime, duration);
+        };
+        task.setVersion(version);
+        return task;
+    }
+
+    public List<Integer> readIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        int c = peek();
+        while (c != EOF && c != '\n' && c != '\r') {
+            ids.add(readInt());
+            c = peek();
+            if (c == ',') {
+                position++;
+                c = peek();
+            }
+        }
+        skipLineEnd();
+        return ids;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position < limit) {
+            return buffer[position];
+        }
+        if (reader == null) {
+            return EOF;
+        }
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read == EOF) {
+            return EOF;
+        }
+        position = 0;
+        limit = read;
+        return buffer[0];
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c != EOF) {
+            position++;
+        }
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = next();
+        if (c != expected) {
+            throw error("ожидался символ '" + expected + "'", c);
+        }
+    }
+
+    private void skipLineEnd() throws IOException {
+        int c = peek();
+        if (c == '\r') {
+            position++;
+            c = peek();
+        }
+        if (c == '\n') {
+            position++;
+        } else if (c != EOF) {
+            throw error("ожидался конец строки", c);
+        }
+    }
+
+    private boolean readNull() throws IOException {
+        if (peek() != 'n') {
+            return false;
+        }
+        for (char expected : NULL) {
+            int c = next();
+            if (c != expected) {
+                throw error("ожидалось значение null", c);
+            }
+        }
+        return true;
+    }
+
+    private int readInt() throws IOException {
+        long value = readLong();
+        if (value != (int) value) {
+            throw new IOException("Неверный формат данных: число " + value + " вне диапазона.");
+        }
+        return (int) value;
+    }
+
+    private long readLong() throws IOException {
+        boolean negative = peek() == '-';
+        if (negative) {
+            position++;
+        }
+        int c = peek();
+        if (c < '0' || c > '9') {
+            throw error("ожидалось число", c);
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            position++;
+            c = peek();
+        }
+        return negative ? -value : value;
+    }
+
+    private int readDigits(int count) throws IOException {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int c = next();
+            if (c < '0' || c > '9') {
+                throw error("ожидалась цифра", c);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Формат LocalDateTime.toString(): uuuu-MM-ddTHH:mm[:ss[.nnnnnnnnn]]
+    private LocalDateTime readDateTime() throws IOException {
+        int year = readDigits(4);
+        expect('-');
+        int month = readDigits(2);
+        expect('-');
+        int day = readDigits(2);
+        expect('T');
+        int hour = readDigits(2);
+        expect(':');
+        int minute = readDigits(2);
+        int second = 0;
+        int nano = 0;
+        if (peek() == ':') {
+            position++;
+            second = readDigits(2);
+            if (peek() == '.') {
+                position++;
+                int digits = 0;
+                int c = peek();
+                while (c >= '0' && c <= '9' && digits < 9) {
+                    nano = nano * 10 + (c - '0');
+                    digits++;
+                    position++;
+                    c = peek();
+                }
+                for (; digits < 9; digits++) {
+                    nano *= 10;
+                }
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private int readEnum(char[][] names) throws IOException {
+        int length = 0;
+        int c = peek();
+        while (c != ',' && c != EOF && length < token.length) {
+            token[length++] = (char) c;
+            position++;
+            c = peek();
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (matches(names[i], length)) {
+                return i;
+            }
+        }
+        throw new IOException("Неверный формат данных: неизвестное значение " + new String(token, 0, length) + ".");
+    }
+
+    private boolean matches(char[] name, int length) {
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name[i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readString() throws IOException {
+        text.setLength(0);
+        int c = peek();
+        if (c != '"') {
+            while (c != ',' && c != EOF && c != '\n' && c != '\r') {
+                text.append((char) c);
+                position++;
+                c = peek();
+            }
+            return isNull() ? null : text.toString();
+        }
+        position++;
+        while (true) {
+            c = next();
+            if (c == EOF) {
+                throw error("не закрыта кавычка", c);
+            }
+            if (c == '"') {
+                if (peek() != '"') {
+                    return text.toString();
+                }
+                position++;
+            }
+            text.append((char) c);
+        }
+    }
+
+    private boolean isNull() {
+        if (text.length() != NULL.length) {
+            return false;
+        }
+        for (int i = 0; i < NULL.length; i++) {
+            if (text.charAt(i) != NULL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IOException error(String message, int actual) {
+        String found = actual == EOF ? "конец файла" : "'" + (char) actual + "'";
+        return new IOException("Неверный формат данных: " + message + ", найдено " + found + ".");
+    }
+
+    private static char[][] names(Enum<?>[] values) {
+        char[][] names = new char[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().toCharArray();
+        }
+        return names;
+    }
+}
@@ -0,0 +1,31 @@
+package service.storage;
+
+import util.DurabilityMode;
+
+public record Durability(DurabilityMode mode, long commitInterval, int commitSize) {
+    private static final long COMMIT_INTERVAL = 10;
+    private static final int COMMIT_SIZE = 256;
+
+    public Durability {
+        if (commitInterval <= 0 || commitSize <= 0) {
+            throw new IllegalArgumentException("Интервал и размер группы записи должны быть положительными.");
+        }
+    }
+
+    public static Durability sync() {
+        return new Durability(DurabilityMode.SYNC, COMMIT_INTERVAL, 1);
+    }
+
+    public static Durability groupCommit(long commitInterval, int commitSize) {
+        return new Durability(DurabilityMode.GROUP_COMMIT, commitInterval, commitSize);
+    }
+
+    public static Durability async() {
+        return new Durability(DurabilityMode.ASYNC, COMMIT_INTERVAL, COMMIT_SIZE);
+    }
+
+    // Для журналов, потеря последних записей которых допустима: вместо синхронной записи групповая
+    public Durability relaxed() {
+        return mode == DurabilityMode.SYNC ? groupCommit(commitInterval, COMMIT_SIZE) : this;
+    }
+}
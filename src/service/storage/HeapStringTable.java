@@ -0,0 +1,56 @@
+package service.storage;
+
+import java.util.Arrays;
+
+// Строки в куче; освобождённые ячейки переиспользуются, поэтому переписывать таблицу не нужно
+public class HeapStringTable implements StringTable {
+    private String[] values = new String[16];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int count;
+
+    @Override
+    public long put(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            slot = count++;
+        }
+        values[slot] = value;
+        return slot;
+    }
+
+    @Override
+    public String get(long reference) {
+        return reference == NULL ? null : values[(int) reference];
+    }
+
+    @Override
+    public void release(long reference) {
+        if (reference == NULL) {
+            return;
+        }
+        values[(int) reference] = null;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = (int) reference;
+    }
+
+    @Override
+    public long garbage() {
+        return 0;
+    }
+
+    @Override
+    public long used() {
+        return count;
+    }
+}
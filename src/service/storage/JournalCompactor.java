@@ -0,0 +1,105 @@
+package service.storage;
+
+import model.Task;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class JournalCompactor implements Closeable {
+    private static final long CLOSE_TIMEOUT = 60;
+    private final File file;
+    private final SnapshotCodec codec;
+    private ExecutorService executor;
+    private boolean running;
+    private long compactions;
+    private long failures;
+    private long lastDurationMillis;
+    private int lastTaskCount;
+    private int lastFoldedRecords;
+    private long lastSnapshotBytes;
+
+    public JournalCompactor(File file, SnapshotCodec codec) {
+        this.file = file;
+        this.codec = codec;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized CompactionStats getStats() {
+        return new CompactionStats(running, compactions, failures, lastDurationMillis, lastTaskCount,
+                lastFoldedRecords, lastSnapshotBytes);
+    }
+
+    // Снимок пишется в фоне из переданной копии состояния; закрытые сегменты журнала удаляются после замены файла.
+    // sequence - номер последней записи сегментов: если сбой случится до их удаления, при загрузке
+    // записи с номерами не больше сохранённого в снимке пропускаются
+    public synchronized boolean compact(List<Task> tasks, List<Integer> history, long sequence, int foldedRecords,
+                                        List<File> segments) {
+        if (running) {
+            return false;
+        }
+        running = true;
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compactor-" + file.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        executor.execute(() -> run(tasks, history, sequence, foldedRecords, segments));
+        return true;
+    }
+
+    @Override
+    public void close() {
+        ExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(List<Task> tasks, List<Integer> history, long sequence, int foldedRecords,
+                     List<File> segments) {
+        long start = System.nanoTime();
+        try {
+            codec.writeAtomically(file, tasks, history, sequence);
+            for (File segment : segments) {
+                Files.deleteIfExists(segment.toPath());
+            }
+            synchronized (this) {
+                compactions++;
+                lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                lastTaskCount = tasks.size();
+                lastFoldedRecords = foldedRecords;
+                lastSnapshotBytes = file.length();
+            }
+        } catch (RuntimeException | IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                failures++;
+            }
+        } finally {
+            synchronized (this) {
+                running = false;
+            }
+        }
+    }
+}
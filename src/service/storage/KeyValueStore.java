@@ -0,0 +1,356 @@
+package service.storage;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class KeyValueStore implements Closeable {
+    // Запись: ключ, длина значения (-1 для удаления), контрольная сумма, значение
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+    private static final long COMPACTION_THRESHOLD = 1 << 20;
+    private static final long CLOSE_TIMEOUT = 60;
+    private final File file;
+    private final Object compactionLock = new Object();
+    private Map<Integer, Long> offsets = new HashMap<>();
+    private FileChannel channel;
+    private long garbage;
+    private ExecutorService compactor;
+    private boolean compacting;
+
+    public KeyValueStore(File file) {
+        this.file = file;
+        open();
+    }
+
+    public synchronized byte[] get(int key) {
+        Long offset = offsets.get(key);
+        if (offset == null) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, offset);
+            byte[] value = new byte[header.getInt(4)];
+            readFully(ByteBuffer.wrap(value), offset + HEADER_SIZE);
+            return value;
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении записи " + key + ".", e);
+        }
+    }
+
+    public synchronized void put(int key, byte[] value) {
+        long offset = append(key, value);
+        Long previous = offsets.put(key, offset);
+        if (previous != null) {
+            garbage += recordSize(previous);
+        }
+    }
+
+    public synchronized boolean remove(int key) {
+        Long previous = offsets.remove(key);
+        if (previous == null) {
+            return false;
+        }
+        long offset = append(key, null);
+        garbage += recordSize(previous) + HEADER_SIZE;
+        return offset >= 0;
+    }
+
+    public synchronized boolean contains(int key) {
+        return offsets.containsKey(key);
+    }
+
+    public synchronized Set<Integer> keys() {
+        return Set.copyOf(offsets.keySet());
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    public synchronized long fileSize() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении размера хранилища.", e);
+        }
+    }
+
+    // Одна синхронизация с диском на операцию менеджера, даже если она записала несколько ключей.
+    // Сжатие, когда мусора становится больше половины файла, запускается в фоне и не задерживает запрос
+    public synchronized void flush() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи хранилища.", e);
+        }
+        if (!compacting && garbage > COMPACTION_THRESHOLD && garbage * 2 > fileSize()) {
+            compacting = true;
+            if (compactor == null) {
+                compactor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "store-compactor-" + file.getName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            compactor.execute(this::compactInBackground);
+        }
+    }
+
+    // Живые записи переписываются в новый файл, который атомарно заменяет старый. Основная часть копируется
+    // без блокировки: файл только дописывается, поэтому записи до его конца на момент начала сжатия
+    // не меняются. Под блокировкой дописываются лишь записи, появившиеся за время копирования
+    public void compact() {
+        synchronized (compactionLock) {
+            Map<Integer, Long> live;
+            long end;
+            FileChannel source;
+            synchronized (this) {
+                live = new HashMap<>(offsets);
+                end = position();
+                source = channel;
+            }
+            File temp = new File(file.getPath() + SnapshotCodec.TEMP_EXTENSION);
+            try (FileChannel target = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Map<Integer, Long> compacted = new HashMap<>();
+                for (Map.Entry<Integer, Long> entry : live.entrySet()) {
+                    compacted.put(entry.getKey(), target.position());
+                    transfer(source, entry.getValue(), target);
+                }
+                synchronized (this) {
+                    if (channel != source) {
+                        // Хранилище закрыли во время копирования
+                        return;
+                    }
+                    catchUp(live, end, compacted, target, temp);
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при сжатии хранилища.", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        ExecutorService current;
+        synchronized (this) {
+            current = compactor;
+            compactor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            closeChannel();
+        }
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // Старый файл остаётся на месте, сжатие повторится после следующих записей
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    // Записи, изменённые после начала сжатия, копируются заново, для удалённых дописываются метки удаления,
+    // затем новый файл подменяет старый
+    private void catchUp(Map<Integer, Long> live, long end, Map<Integer, Long> compacted, FileChannel target,
+                         File temp) throws IOException {
+        long dead = 0;
+        for (Map.Entry<Integer, Long> entry : live.entrySet()) {
+            Long current = offsets.get(entry.getKey());
+            if (current == null || current >= end) {
+                dead += recordSize(entry.getValue());
+            }
+            if (current == null) {
+                compacted.remove(entry.getKey());
+                ByteBuffer tombstone = record(entry.getKey(), null);
+                while (tombstone.hasRemaining()) {
+                    target.write(tombstone);
+                }
+                dead += HEADER_SIZE;
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+            if (entry.getValue() >= end) {
+                compacted.put(entry.getKey(), target.position());
+                transfer(channel, entry.getValue(), target);
+            }
+        }
+        target.force(true);
+        closeChannel();
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            open();
+            throw e;
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        offsets = compacted;
+        garbage = dead;
+    }
+
+    private void transfer(FileChannel source, long offset, FileChannel target) throws IOException {
+        long size = recordSize(source, offset);
+        long transferred = 0;
+        while (transferred < size) {
+            transferred += source.transferTo(offset + transferred, size - transferred, target);
+        }
+    }
+
+    private long position() {
+        try {
+            return channel.position();
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении размера хранилища.", e);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при закрытии хранилища.", e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    // Индекс восстанавливается просмотром файла; оборванная или повреждённая запись в конце отрезается
+    private void open() {
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            offsets.clear();
+            garbage = 0;
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (position + HEADER_SIZE <= size) {
+                header.clear();
+                readFully(header, position);
+                int key = header.getInt(0);
+                int length = header.getInt(4);
+                long next = position + HEADER_SIZE + Math.max(length, 0);
+                if (length < TOMBSTONE || next > size || !checksumMatches(header, position, length)) {
+                    break;
+                }
+                Long previous = length == TOMBSTONE ? offsets.remove(key) : offsets.put(key, position);
+                if (previous != null) {
+                    garbage += recordSize(previous);
+                }
+                if (length == TOMBSTONE) {
+                    garbage += HEADER_SIZE;
+                }
+                position = next;
+            }
+            if (position < size) {
+                channel.truncate(position);
+            }
+            channel.position(position);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при открытии хранилища.", e);
+        }
+    }
+
+    private long append(int key, byte[] value) {
+        ByteBuffer record = record(key, value);
+        try {
+            long offset = channel.position();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            return offset;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при записи ключа " + key + ".", e);
+        }
+    }
+
+    private static ByteBuffer record(int key, byte[] value) {
+        int length = value == null ? TOMBSTONE : value.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + Math.max(length, 0));
+        record.putInt(key).putInt(length).putInt(checksum(key, value));
+        if (value != null) {
+            record.put(value);
+        }
+        record.flip();
+        return record;
+    }
+
+    private boolean checksumMatches(ByteBuffer header, long position, int length) throws IOException {
+        byte[] value = null;
+        if (length != TOMBSTONE) {
+            value = new byte[length];
+            readFully(ByteBuffer.wrap(value), position + HEADER_SIZE);
+        }
+        return header.getInt(8) == checksum(header.getInt(0), value);
+    }
+
+    private long recordSize(long offset) {
+        try {
+            return recordSize(channel, offset);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении хранилища.", e);
+        }
+    }
+
+    private long recordSize(FileChannel source, long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(source, length, offset + Integer.BYTES);
+        return HEADER_SIZE + Math.max(length.getInt(0), 0);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        readFully(channel, buffer, position);
+    }
+
+    private void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла " + file + ".");
+            }
+        }
+    }
+
+    private static int checksum(int key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Integer.BYTES).putInt(key).array());
+        if (value != null) {
+            crc.update(value);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,64 @@
+package service.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Строки в UTF-8 вне кучи, в прямых буферах по блокам; ссылка - номер блока и смещение.
+// Запись: длина, байты. Место освобождённых строк возвращается только при переписывании таблицы
+public class OffHeapStringTable implements StringTable {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private long used;
+    private long garbage;
+
+    @Override
+    public long put(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int size = Integer.BYTES + bytes.length;
+        if (current == null || current.remaining() < size) {
+            current = ByteBuffer.allocateDirect(Math.max(CHUNK_SIZE, size));
+            chunks.add(current);
+        }
+        int offset = current.position();
+        current.putInt(bytes.length).put(bytes);
+        used += size;
+        return (long) (chunks.size() - 1) << 32 | offset;
+    }
+
+    @Override
+    public String get(long reference) {
+        if (reference == NULL) {
+            return null;
+        }
+        ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+        int offset = (int) reference;
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void release(long reference) {
+        if (reference == NULL) {
+            return;
+        }
+        ByteBuffer chunk = chunks.get((int) (reference >>> 32));
+        garbage += Integer.BYTES + chunk.getInt((int) reference);
+    }
+
+    @Override
+    public long garbage() {
+        return garbage;
+    }
+
+    @Override
+    public long used() {
+        return used;
+    }
+}
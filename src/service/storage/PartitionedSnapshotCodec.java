@@ -0,0 +1,195 @@
+package service.storage;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import model.Task;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+// Разделы каждой записи пишутся под новым номером поколения, а основной файл - манифест с номером
+// опубликованного поколения - заменяется одним атомарным переименованием. При сбое во время записи
+// манифест указывает на прежнее поколение, и старые и новые разделы не смешиваются.
+// История и номер последней записи журнала хранятся в нулевом разделе поколения
+public class PartitionedSnapshotCodec implements SnapshotCodec {
+    private static final String PARTITION_EXTENSION = ".part";
+    private static final String MANIFEST = "partitions";
+    private static final int MANIFEST_LIMIT = 64;
+    // Поколение разделов, записанных до появления манифеста: файлы .part0, .part1, ...
+    private static final long LEGACY_GENERATION = 0;
+    private final SnapshotCodec delegate;
+    private final int partitions;
+    private final ForkJoinPool pool;
+
+    public PartitionedSnapshotCodec(SnapshotCodec delegate, int partitions, ForkJoinPool pool) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Количество разделов должно быть положительным.");
+        }
+        this.delegate = delegate;
+        this.partitions = partitions;
+        this.pool = pool;
+    }
+
+    public PartitionedSnapshotCodec(SnapshotCodec delegate, int partitions) {
+        this(delegate, partitions, ForkJoinPool.commonPool());
+    }
+
+    public PartitionedSnapshotCodec(SnapshotCodec delegate) {
+        this(delegate, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Раздел опубликованного поколения
+    public static File partition(File file, int index) {
+        Manifest manifest = readManifest(file);
+        return partition(file, manifest == null ? LEGACY_GENERATION : manifest.generation(), index);
+    }
+
+    private static File partition(File file, long generation, int index) {
+        if (generation == LEGACY_GENERATION) {
+            return new File(file.getPath() + PARTITION_EXTENSION + index);
+        }
+        return new File(file.getPath() + PARTITION_EXTENSION + generation + "-" + index);
+    }
+
+    @Override
+    public void write(File file, List<Task> tasks, List<Integer> history, long sequence) {
+        Manifest previous = readManifest(file);
+        long generation = previous == null ? LEGACY_GENERATION + 1 : previous.generation() + 1;
+        int chunk = (tasks.size() + partitions - 1) / partitions;
+        pool.submit(() -> IntStream.range(0, partitions).parallel().forEach(index -> {
+            int from = Math.min(tasks.size(), index * chunk);
+            int to = Math.min(tasks.size(), from + chunk);
+            delegate.writeAtomically(partition(file, generation, index), tasks.subList(from, to),
+                    index == 0 ? history : List.of(), index == 0 ? sequence : 0);
+        })).join();
+        publish(file, new Manifest(generation, partitions));
+        deleteStale(file, generation);
+    }
+
+    // Запись и так атомарна: до замены манифеста читается прежнее поколение
+    @Override
+    public void writeAtomically(File file, List<Task> tasks, List<Integer> history, long sequence) {
+        write(file, tasks, history, sequence);
+    }
+
+    @Override
+    public Snapshot read(File file) {
+        Manifest manifest = readManifest(file);
+        if (manifest == null) {
+            // Снимок без манифеста: разделы старого формата с историей в основном файле
+            // или обычный снимок без разделов
+            int count = 0;
+            while (partition(file, LEGACY_GENERATION, count).exists()) {
+                count++;
+            }
+            Snapshot main = delegate.read(file);
+            if (count == 0) {
+                return main;
+            }
+            List<Task> tasks = new ArrayList<>();
+            pool.invoke(new PartitionReader(file, LEGACY_GENERATION, 0, count))
+                    .forEach(partition -> tasks.addAll(partition.tasks()));
+            return new Snapshot(tasks, main.history(), main.sequence());
+        }
+        List<Snapshot> parts = pool.invoke(new PartitionReader(file, manifest.generation(), 0, manifest.count()));
+        List<Task> tasks = new ArrayList<>();
+        parts.forEach(partition -> tasks.addAll(partition.tasks()));
+        return new Snapshot(tasks, parts.getFirst().history(), parts.getFirst().sequence());
+    }
+
+    private static Manifest readManifest(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        String header;
+        try (InputStream input = new FileInputStream(file)) {
+            header = new String(input.readNBytes(MANIFEST_LIMIT), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении манифеста снимка.", e);
+        }
+        if (!header.startsWith(MANIFEST + ",")) {
+            return null;
+        }
+        String[] fields = header.strip().split(",");
+        try {
+            return new Manifest(Long.parseLong(fields[1]), Integer.parseInt(fields[2]));
+        } catch (RuntimeException e) {
+            throw new ManagerLoadException("Неверный формат манифеста снимка: " + header.strip(), e);
+        }
+    }
+
+    private static void publish(File file, Manifest manifest) {
+        File temp = new File(file.getPath() + TEMP_EXTENSION);
+        try {
+            try (FileOutputStream output = new FileOutputStream(temp)) {
+                output.write((MANIFEST + "," + manifest.generation() + "," + manifest.count() + "\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                output.getChannel().force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при замене манифеста снимка.", e);
+        }
+    }
+
+    // Удаляются разделы прежних поколений и недописанные временные файлы
+    private static void deleteStale(File file, long generation) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        String prefix = file.getName() + PARTITION_EXTENSION;
+        String current = prefix + generation + "-";
+        File[] stale = directory.listFiles((dir, name) -> name.startsWith(prefix) && !name.startsWith(current));
+        if (stale == null) {
+            return;
+        }
+        try {
+            for (File partition : stale) {
+                Files.deleteIfExists(partition.toPath());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при удалении устаревшего раздела.", e);
+        }
+    }
+
+    private record Manifest(long generation, int count) {
+    }
+
+    private class PartitionReader extends RecursiveTask<List<Snapshot>> {
+        private final File file;
+        private final long generation;
+        private final int from;
+        private final int to;
+
+        PartitionReader(File file, long generation, int from, int to) {
+            this.file = file;
+            this.generation = generation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Snapshot> compute() {
+            if (to - from == 1) {
+                return List.of(delegate.read(partition(file, generation, from)));
+            }
+            int middle = (from + to) >>> 1;
+            PartitionReader left = new PartitionReader(file, generation, from, middle);
+            left.fork();
+            List<Snapshot> right = new PartitionReader(file, generation, middle, to).compute();
+            List<Snapshot> parts = new ArrayList<>(left.join());
+            parts.addAll(right);
+            return parts;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package service.storage;
+
+import model.Task;
+
+import java.util.List;
+
+// sequence - номер последней записи журнала, вошедшей в снимок
+public record Snapshot(List<Task> tasks, List<Integer> history, long sequence) {
+
+    public Snapshot(List<Task> tasks, List<Integer> history) {
+        this(tasks, history, 0);
+    }
+}
@@ -0,0 +1,51 @@
+package service.storage;
+
+import exception.ManagerSaveException;
+import model.Task;
+import util.SnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public interface SnapshotCodec {
+    String TEMP_EXTENSION = ".tmp";
+
+    void write(File file, List<Task> tasks, List<Integer> history, long sequence);
+
+    Snapshot read(File file);
+
+    default void write(File file, List<Task> tasks, List<Integer> history) {
+        write(file, tasks, history, 0);
+    }
+
+    default void writeAtomically(File file, List<Task> tasks, List<Integer> history) {
+        writeAtomically(file, tasks, history, 0);
+    }
+
+    // Снимок пишется во временный файл и атомарно подменяет старый: при сбое остаётся прежняя версия
+    default void writeAtomically(File file, List<Task> tasks, List<Integer> history, long sequence) {
+        File temp = new File(file.getPath() + TEMP_EXTENSION);
+        write(temp, tasks, history, sequence);
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при замене файла снимка.", e);
+        }
+    }
+
+    static SnapshotCodec of(SnapshotFormat format) {
+        return switch (format) {
+            case CSV -> new CsvSnapshotCodec();
+            case BINARY -> new BinarySnapshotCodec();
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package service.storage;
+
+import util.SnapshotFormat;
+
+import java.io.File;
+
+public class SnapshotConverter {
+
+    public static void convert(File source, SnapshotFormat sourceFormat, File target, SnapshotFormat targetFormat) {
+        Snapshot snapshot = SnapshotCodec.of(sourceFormat).read(source);
+        SnapshotCodec.of(targetFormat).write(target, snapshot.tasks(), snapshot.history(), snapshot.sequence());
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.out.println("Использование: SnapshotConverter <файл> <CSV|BINARY> <новый файл> <CSV|BINARY>");
+            return;
+        }
+        convert(new File(args[0]), SnapshotFormat.valueOf(args[1]), new File(args[2]), SnapshotFormat.valueOf(args[3]));
+    }
+}
@@ -0,0 +1,26 @@
+package service.storage;
+
+import util.StringStorage;
+
+// Таблица строк: строка сохраняется один раз и дальше передаётся числовой ссылкой
+public interface StringTable {
+    long NULL = -1;
+
+    long put(String value);
+
+    String get(long reference);
+
+    void release(long reference);
+
+    // Байты, занятые освобождёнными строками; по ним хранилище решает, когда переписать таблицу
+    long garbage();
+
+    long used();
+
+    static StringTable of(StringStorage storage) {
+        return switch (storage) {
+            case HEAP -> new HeapStringTable();
+            case OFF_HEAP -> new OffHeapStringTable();
+        };
+    }
+}
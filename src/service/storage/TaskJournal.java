@@ -0,0 +1,320 @@
+package service.storage;
+
+import exception.ManagerLoadException;
+import exception.ManagerSaveException;
+import util.DurabilityMode;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class TaskJournal implements Closeable {
+    private static final String SEGMENT_EXTENSION = ".1";
+    private final File file;
+    private final File segment;
+    private final Durability durability;
+    private final Object writeLock = new Object();
+    private List<String> pending = new ArrayList<>();
+    private ScheduledExecutorService flusher;
+    private FileOutputStream output;
+    private BufferedWriter writer;
+    private IOException failure;
+    private long committed;
+    private int size;
+
+    public TaskJournal(File file, Durability durability) {
+        this.file = file;
+        this.segment = new File(file.getPath() + SEGMENT_EXTENSION);
+        this.durability = durability;
+    }
+
+    public TaskJournal(File file) {
+        this(file, Durability.sync());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public File getSegmentFile() {
+        return segment;
+    }
+
+    public boolean hasSegment() {
+        return segment.exists();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    // Пакет записей фиксируется одной записью на диск
+    public void appendAll(List<String> records) {
+        if (durability.mode() == DurabilityMode.SYNC) {
+            synchronized (writeLock) {
+                write(records);
+            }
+            synchronized (this) {
+                size += records.size();
+            }
+            return;
+        }
+        // Запись подтверждается сразу после постановки в очередь, на диск её сбрасывает фоновый поток
+        synchronized (this) {
+            if (failure != null) {
+                throw new ManagerSaveException("Произошла ошибка при фоновой записи журнала.", failure);
+            }
+            int queued = pending.size();
+            pending.addAll(records);
+            size += records.size();
+            if (flusher == null) {
+                startFlusher();
+            }
+            if (queued < durability.commitSize() && pending.size() >= durability.commitSize()) {
+                flusher.execute(this::flushQuietly);
+            }
+        }
+    }
+
+    public void flush() {
+        synchronized (writeLock) {
+            List<String> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            write(batch);
+        }
+    }
+
+    public synchronized void replay(Consumer<String> consumer) {
+        replay(segment, consumer);
+        replay(file, consumer);
+    }
+
+    // Текущий файл журнала закрывается и становится сегментом; новые записи пойдут в пустой файл
+    public File rotate() {
+        synchronized (writeLock) {
+            flush();
+            closeWriter();
+            synchronized (this) {
+                size = 0;
+            }
+            try {
+                if (file.exists()) {
+                    Files.move(file.toPath(), segment.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при закрытии сегмента журнала.", e);
+            }
+            return segment;
+        }
+    }
+
+    public void reset() {
+        synchronized (writeLock) {
+            synchronized (this) {
+                pending.clear();
+                size = 0;
+            }
+            closeWriter();
+            try {
+                new FileOutputStream(file).close();
+                Files.deleteIfExists(segment.toPath());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при очистке журнала.", e);
+            }
+        }
+    }
+
+    // Журнал заменяется переданными записями через временный файл; закрытый сегмент не затрагивается
+    public void rewrite(List<String> records) {
+        synchronized (writeLock) {
+            synchronized (this) {
+                pending.clear();
+            }
+            closeWriter();
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp);
+                 BufferedWriter tempWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (String record : records) {
+                    tempWriter.append(record);
+                    tempWriter.newLine();
+                }
+                tempWriter.flush();
+                out.getChannel().force(false);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при перезаписи журнала.", e);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка при перезаписи журнала.", e);
+            }
+            synchronized (this) {
+                size = records.size();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(durability.commitInterval() * 10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (writeLock) {
+            flush();
+            closeWriter();
+        }
+    }
+
+    private void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flusher-" + file.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, durability.commitInterval(), durability.commitInterval(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (ManagerSaveException e) {
+            synchronized (this) {
+                failure = (IOException) e.getCause();
+            }
+        }
+    }
+
+    private void write(List<String> records) {
+        try {
+            if (writer == null) {
+                output = new FileOutputStream(file, true);
+                writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                committed = output.getChannel().size();
+            }
+            for (String record : records) {
+                writer.append(record);
+                writer.newLine();
+            }
+            writer.flush();
+            if (durability.mode() != DurabilityMode.ASYNC) {
+                output.getChannel().force(false);
+            }
+            committed = output.getChannel().position();
+        } catch (IOException e) {
+            rollback();
+            throw new ManagerSaveException("Произошла ошибка при записи журнала.", e);
+        }
+    }
+
+    // Частично записанный пакет срезается, иначе он попадёт в сегмент при сжатии и склеится со следующей записью
+    private void rollback() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException | RuntimeException ignored) {
+            // Файл всё равно обрезается до последней целой записи
+        } finally {
+            writer = null;
+            output = null;
+        }
+        try {
+            truncate(file, committed);
+        } catch (ManagerLoadException ignored) {
+            // Хвост будет отброшен при следующем чтении журнала
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка при закрытии журнала.", e);
+        } finally {
+            writer = null;
+            output = null;
+        }
+    }
+
+    private void replay(File source, Consumer<String> consumer) {
+        if (!source.exists()) {
+            return;
+        }
+        long complete = 0;
+        try (final InputStream input = new BufferedInputStream(new FileInputStream(source))) {
+            // Перевод строки внутри кавычек не завершает запись; оборванная последняя запись отбрасывается
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            boolean quoted = false;
+            long offset = 0;
+            int b;
+            while ((b = input.read()) != -1) {
+                offset++;
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    String line = record.toString(StandardCharsets.UTF_8);
+                    if (line.endsWith("\r")) {
+                        line = line.substring(0, line.length() - 1);
+                    }
+                    if (!line.isEmpty()) {
+                        consumer.accept(line);
+                        size++;
+                    }
+                    record.reset();
+                    complete = offset;
+                    continue;
+                }
+                record.write(b);
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при чтении журнала.", e);
+        }
+        truncate(source, complete);
+    }
+
+    // Оборванный хвост обрезается: иначе следующая запись склеится с ним и журнал не прочитается
+    private static void truncate(File source, long length) {
+        if (source.length() <= length) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(source, "rw")) {
+            raf.getChannel().truncate(length);
+            raf.getChannel().force(false);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка при восстановлении журнала.", e);
+        }
+    }
+}
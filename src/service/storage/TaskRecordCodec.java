@@ -0,0 +1,121 @@
+package service.storage;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public final class TaskRecordCodec {
+    // Запись: тип, статус, id, epicId, начало, длительность, конец эпика, имя, описание, подзадачи эпика, версия.
+    // Версия дописана в конец: в записях без неё задача получает версию 1
+    private static final int FIXED_SIZE = 2 + 4 + 4 + 12 + 8 + 12 + 4 + 4 + 4 + 8;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long NO_DURATION = Long.MIN_VALUE;
+    private static final int NO_EPIC = -1;
+    private static final int NULL_STRING = -1;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private TaskRecordCodec() {
+    }
+
+    public static byte[] encode(Task task) {
+        byte[] name = bytes(task.getName());
+        byte[] description = bytes(task.getDescription());
+        int[] subTaskIds = task instanceof Epic epic ? epic.getSubTaskIds().toArray() : new int[0];
+        Integer epicId = task.getEpicId();
+        LocalDateTime endTime = task instanceof Epic ? task.getEndTime() : null;
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + length(name) + length(description)
+                + subTaskIds.length * Integer.BYTES);
+        buffer.put((byte) task.getType().ordinal())
+                .put((byte) task.getStatus().ordinal())
+                .putInt(task.getId())
+                .putInt(epicId == null ? NO_EPIC : epicId);
+        putTime(buffer, task.getStartTime());
+        buffer.putLong(task.hasDuration() ? task.getDuration() : NO_DURATION);
+        putTime(buffer, endTime);
+        putString(buffer, name);
+        putString(buffer, description);
+        buffer.putInt(subTaskIds.length);
+        for (int subTaskId : subTaskIds) {
+            buffer.putInt(subTaskId);
+        }
+        buffer.putLong(task.getVersion());
+        return buffer.array();
+    }
+
+    public static Task decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        TaskType type = TYPES[buffer.get()];
+        TaskStatus status = STATUSES[buffer.get()];
+        int id = buffer.getInt();
+        int epicId = buffer.getInt();
+        LocalDateTime startTime = getTime(buffer);
+        long storedDuration = buffer.getLong();
+        Long duration = storedDuration == NO_DURATION ? null : storedDuration;
+        LocalDateTime endTime = getTime(buffer);
+        String name = getString(buffer);
+        String description = getString(buffer);
+        int count = buffer.getInt();
+
+        Task task = switch (type) {
+            case TASK -> new Task(id, name, status, description, startTime, duration);
+            case SUBTASK -> new SubTask(epicId, id, name, status, description, startTime, duration);
+            case EPIC -> {
+                Epic epic = new Epic(id, name, status, description, List.of(), startTime, duration);
+                for (int i = 0; i < count; i++) {
+                    epic.addSubTaskById(buffer.getInt());
+                }
+                epic.setEndTime(endTime);
+                yield epic;
+            }
+        };
+        task.setVersion(buffer.remaining() >= Long.BYTES ? buffer.getLong() : 1);
+        return task;
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC))
+                .putInt(time == null ? 0 : time.getNano());
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nano = buffer.getInt();
+        return seconds == NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nano, ZoneOffset.UTC);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(NULL_STRING);
+            return;
+        }
+        buffer.putInt(value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
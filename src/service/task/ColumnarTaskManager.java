@@ -0,0 +1,381 @@
+package service.task;
+
+import exception.NotFoundException;
+import exception.ValidationException;
+import model.Epic;
+import model.ScheduleRequest;
+import model.SubTask;
+import model.Task;
+import service.Managers;
+import service.history.HistoryManager;
+import service.storage.ColumnarTaskStore;
+import util.StringStorage;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Задачи хранятся по столбцам в ColumnarTaskStore; объекты Task собираются только при выдаче,
+// поэтому изменения вносятся через методы update*, а не через полученные экземпляры
+public class ColumnarTaskManager implements TaskManager {
+    private final ColumnarTaskStore store;
+    private final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final ScheduleIndex schedule = new ScheduleIndex();
+    private volatile ScheduleSnapshot prioritizedTasks = ScheduleSnapshot.EMPTY;
+    private long version;
+    private int seq = 0;
+
+    // OFF_HEAP выносит имена и описания из кучи; они декодируются только при выдаче задачи
+    public ColumnarTaskManager(StringStorage storage) {
+        this.store = new ColumnarTaskStore(storage);
+    }
+
+    public ColumnarTaskManager() {
+        this(StringStorage.HEAP);
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return readAll(TaskType.TASK);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return readAll(TaskType.EPIC);
+    }
+
+    @Override
+    public List<SubTask> getSubTasks() {
+        return readAll(TaskType.SUBTASK);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        Arrays.stream(store.ids(TaskType.TASK)).forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        Arrays.stream(store.ids(TaskType.SUBTASK)).forEach(this::delete);
+        Arrays.stream(store.ids(TaskType.EPIC)).forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAllSubTasks(Epic epic) {
+        Epic stored = readEpic(epic.getId());
+        stored.getSubTaskIds().forEach(this::delete);
+        stored.getSubTaskIds().clear();
+        recalculate(stored);
+        epic.getSubTaskIds().clear();
+        epic.setStatus(stored.getStatus());
+        epic.setStartTime(stored.getStartTime());
+        epic.setEndTime(stored.getEndTime());
+        epic.setDuration(stored.getDuration());
+        epic.setVersion(stored.getVersion());
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = read(id, TaskType.TASK, "Не найдено задачи с id: ");
+        historyManager.add(task);
+        return task;
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = readEpic(id);
+        historyManager.add(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTaskById(int id) {
+        SubTask subTask = (SubTask) read(id, TaskType.SUBTASK, "Не найдено подзадачи с id: ");
+        historyManager.add(subTask);
+        return subTask;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        if (schedule.intersects(task, null)) {
+            throw new ValidationException("Время выполнения задачи пересекается с существующей.");
+        }
+        task.setId(seq++);
+        task.setVersion(1);
+        write(task);
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(seq++);
+        epic.setVersion(1);
+        write(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        if (schedule.intersects(subTask, null)) {
+            throw new ValidationException("Время выполнения подзадачи пересекается с существующей.");
+        }
+        Epic epic = readEpic(subTask.getEpicId());
+        subTask.setId(seq++);
+        subTask.setVersion(1);
+        write(subTask);
+        epic.addSubTaskById(subTask.getId());
+        recalculate(epic);
+        return subTask;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (store.type(task.getId()) != TaskType.TASK) {
+            throw new NotFoundException("Не найдено задачи с id: " + task.getId());
+        }
+        TaskVersions.check(task, store.version(task.getId()));
+        if (schedule.intersects(task, task.getId())) {
+            throw new ValidationException("Время выполнения задачи пересекается с существующей.");
+        }
+        task.setVersion(store.version(task.getId()) + 1);
+        write(task);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        Epic stored = readEpic(epic.getId());
+        TaskVersions.check(epic, stored.getVersion());
+        stored.setName(epic.getName());
+        stored.setDescription(epic.getDescription());
+        TaskVersions.next(stored);
+        epic.setVersion(stored.getVersion());
+        write(stored);
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        if (store.type(subTask.getId()) != TaskType.SUBTASK) {
+            throw new NotFoundException("Не найдено подзадачи с id: " + subTask.getId());
+        }
+        TaskVersions.check(subTask, store.version(subTask.getId()));
+        if (schedule.intersects(subTask, subTask.getId())) {
+            throw new ValidationException("Время выполнения подзадачи пересекается с существующей.");
+        }
+        Epic epic = readEpic(subTask.getEpicId());
+        Task previous = store.get(subTask.getId());
+        subTask.setVersion(previous.getVersion() + 1);
+        write(subTask);
+        if (!Objects.equals(previous.getEpicId(), subTask.getEpicId())) {
+            Epic previousEpic = readEpic(previous.getEpicId());
+            previousEpic.removeSubTaskById(subTask.getId());
+            recalculate(previousEpic);
+            epic.addSubTaskById(subTask.getId());
+        }
+        recalculate(epic);
+    }
+
+    @Override
+    public void removeTaskById(int id) {
+        if (store.type(id) != TaskType.TASK) {
+            throw new NotFoundException("Не найдено задачи с id: " + id);
+        }
+        delete(id);
+    }
+
+    @Override
+    public void removeEpicById(int id) {
+        Epic epic = readEpic(id);
+        epic.getSubTaskIds().forEach(this::delete);
+        delete(id);
+    }
+
+    @Override
+    public void removeSubTaskById(int id) {
+        SubTask subTask = (SubTask) read(id, TaskType.SUBTASK, "Не найдено подзадачи с id: ");
+        Epic epic = readEpic(subTask.getEpicId());
+        epic.removeSubTaskById(id);
+        delete(id);
+        recalculate(epic);
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(Epic epic) {
+        return epic.getSubTaskIds().stream()
+                .filter(store::contains)
+                .mapToObj(id -> (SubTask) store.get(id))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(int epicId) {
+        return getEpicSubTasks(getEpicById(epicId));
+    }
+
+    @Override
+    public void calculateEpicStatus(Epic epic) {
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика");
+        }
+        epic.setStatus(store.aggregateStatus(epic.getSubTaskIds()));
+    }
+
+    @Override
+    public void calculateEpicTimes(Epic epic) {
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика");
+        }
+        store.aggregateTimes(epic.getSubTaskIds(), epic);
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory().stream()
+                .map(task -> store.get(task.getId()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        ScheduleSnapshot snapshot = prioritizedTasks;
+        if (snapshot.version() != version) {
+            snapshot = new ScheduleSnapshot(version, schedule.ids().stream()
+                    .map(store::get)
+                    .toList());
+            prioritizedTasks = snapshot;
+        }
+        return snapshot.tasks();
+    }
+
+    @Override
+    public TaskSnapshot snapshot() {
+        return TaskSnapshot.of(getTasks(), getEpics(), getSubTasks());
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Начало периода должно быть раньше его окончания.");
+        }
+        return schedule.overlapping(from, to).stream()
+                .map(store::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(long duration, LocalDateTime after, LocalDateTime before) {
+        if (duration <= 0) {
+            throw new ValidationException("Длительность должна быть положительной.");
+        }
+        LocalDateTime start = schedule.findFreeSlot(Duration.ofMinutes(duration), after, before);
+        if (start == null) {
+            throw new NotFoundException("Не найдено свободного времени длительностью " + duration + " мин.");
+        }
+        return start;
+    }
+
+    @Override
+    public List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after) {
+        List<Task> scheduled = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+        try {
+            for (ScheduleRequest request : requests.stream().sorted(ScheduleRequest.ORDER).toList()) {
+                TaskType type = store.type(request.taskId());
+                if (type != TaskType.TASK && type != TaskType.SUBTASK) {
+                    throw new NotFoundException("Не найдено задачи или подзадачи с id: " + request.taskId());
+                }
+                if (!ids.add(request.taskId())) {
+                    throw new ValidationException("Задача с id: " + request.taskId() + " уже запланирована.");
+                }
+                Task task = store.get(request.taskId());
+                task.setStartTime(schedule.plan(task, after, request.deadline()));
+                schedule.put(task);
+                scheduled.add(task);
+            }
+        } catch (RuntimeException e) {
+            scheduled.forEach(task -> schedule.remove(task.getId()));
+            throw e;
+        }
+        Set<Integer> epicIds = new LinkedHashSet<>();
+        for (Task task : scheduled) {
+            TaskVersions.next(task);
+            write(task);
+            if (task.getEpicId() != null) {
+                epicIds.add(task.getEpicId());
+            }
+        }
+        epicIds.forEach(epicId -> recalculate(readEpic(epicId)));
+        return scheduled;
+    }
+
+    // Задачи и подзадачи со статусом status и началом в [from, to); null - без ограничения
+    public List<Task> findTasks(TaskStatus status, LocalDateTime from, LocalDateTime to) {
+        List<Task> found = new ArrayList<>();
+        for (TaskType type : List.of(TaskType.TASK, TaskType.SUBTASK)) {
+            for (int id : store.select(type, status, from, to)) {
+                found.add(store.get(id));
+            }
+        }
+        return found;
+    }
+
+    public Map<TaskStatus, Integer> countByStatus(TaskType type) {
+        int[] counts = store.countByStatus(type);
+        Map<TaskStatus, Integer> result = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            result.put(status, counts[status.ordinal()]);
+        }
+        return result;
+    }
+
+    public long getTotalDuration(TaskType type) {
+        return store.totalDuration(type);
+    }
+
+    private Task read(int id, TaskType type, String message) {
+        if (store.type(id) != type) {
+            throw new NotFoundException(message + id);
+        }
+        return store.get(id);
+    }
+
+    private Epic readEpic(Integer id) {
+        return (Epic) read(id == null ? -1 : id, TaskType.EPIC, "Не найдено эпика с id: ");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> readAll(TaskType type) {
+        return Arrays.stream(store.ids(type))
+                .mapToObj(id -> (T) store.get(id))
+                .collect(Collectors.toList());
+    }
+
+    private void write(Task task) {
+        store.put(task);
+        version++;
+        if (task.getType() != TaskType.EPIC) {
+            schedule.put(task);
+        }
+    }
+
+    private void delete(int id) {
+        store.remove(id);
+        version++;
+        schedule.remove(id);
+        historyManager.remove(id);
+    }
+
+    private void recalculate(Epic epic) {
+        calculateEpicStatus(epic);
+        calculateEpicTimes(epic);
+        TaskVersions.next(epic);
+        write(epic);
+    }
+}
@@ -0,0 +1,273 @@
+package service.task;
+
+import exception.NotFoundException;
+import model.Epic;
+import model.ScheduleRequest;
+import model.SubTask;
+import model.Task;
+import service.Managers;
+import service.history.SynchronizedHistoryManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+// Потокобезопасный менеджер в памяти. Чтения списков - линейные проходы по массивам IntMap - идут
+// оптимистично без блокировки и повторяются под блокировкой чтения, только если за это время
+// прошла запись. Записи выполняются по одной: проверка пересечений идёт по общему расписанию,
+// поэтому изменения разных эпиков и задач всё равно зависят друг от друга.
+// Писатели меняют задачи на месте, поэтому чтения выдают копии, снятые под той же блокировкой
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private final StampedLock lock = new StampedLock();
+    private volatile TaskSnapshot published;
+
+    public ConcurrentTaskManager() {
+        super(new SynchronizedHistoryManager(Managers.getDefaultHistory()));
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return optimisticRead(() -> TaskSnapshot.copies(super.getTasks()));
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return optimisticRead(() -> TaskSnapshot.copies(super.getEpics()));
+    }
+
+    @Override
+    public List<SubTask> getSubTasks() {
+        return optimisticRead(() -> TaskSnapshot.copies(super.getSubTasks()));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(super::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(super::deleteAllEpics);
+    }
+
+    // Чтения выдают копии, поэтому эпик из аргумента ищется в менеджере по id, а результат копируется обратно
+    @Override
+    public void deleteAllSubTasks(Epic epic) {
+        int id = epic.getId();
+        Epic result = write(() -> {
+            Epic stored = storedEpic(id);
+            super.deleteAllSubTasks(stored);
+            return (Epic) TaskSnapshot.copyOf(stored);
+        });
+        epic.getSubTaskIds().clear();
+        epic.discardSubTasks();
+        epic.setVersion(result.getVersion());
+    }
+
+    // Просмотр меняет историю, поэтому берётся разделяемая блокировка: удаление задачи
+    // не может вклиниться между поиском и записью в историю
+    @Override
+    public Task getTaskById(int id) {
+        return read(() -> TaskSnapshot.copyOf(super.getTaskById(id)));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return read(() -> (Epic) TaskSnapshot.copyOf(super.getEpicById(id)));
+    }
+
+    @Override
+    public SubTask getSubTaskById(int id) {
+        return read(() -> (SubTask) TaskSnapshot.copyOf(super.getSubTaskById(id)));
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return write(() -> super.createTask(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return write(() -> super.createEpic(epic));
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        return write(() -> super.createSubTask(subTask));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> super.updateEpic(epic));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        write(() -> super.updateSubTask(subTask));
+    }
+
+    @Override
+    public void removeTaskById(int id) {
+        write(() -> super.removeTaskById(id));
+    }
+
+    @Override
+    public void removeEpicById(int id) {
+        write(() -> super.removeEpicById(id));
+    }
+
+    @Override
+    public void removeSubTaskById(int id) {
+        write(() -> super.removeSubTaskById(id));
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(Epic epic) {
+        return optimisticRead(() -> TaskSnapshot.copies(super.getEpicSubTasks(epic)));
+    }
+
+    // Эпик и подзадачи читаются из опубликованного снимка без блокировки. Просмотр записывается
+    // под блокировкой чтения, и только если эпик за это время не удалили
+    @Override
+    public List<SubTask> getEpicSubTasks(int epicId) {
+        List<SubTask> subTasks = snapshot().getEpicSubTasks(epicId);
+        read(() -> recordView(epicId));
+        return subTasks;
+    }
+
+    @Override
+    public void calculateEpicStatus(Epic epic) {
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика");
+        }
+        int id = epic.getId();
+        Epic result = write(() -> {
+            Epic stored = storedEpic(id);
+            super.calculateEpicStatus(stored);
+            return (Epic) TaskSnapshot.copyOf(stored);
+        });
+        epic.setStatus(result.getStatus());
+    }
+
+    @Override
+    public void calculateEpicTimes(Epic epic) {
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика");
+        }
+        int id = epic.getId();
+        Epic result = write(() -> {
+            Epic stored = storedEpic(id);
+            super.calculateEpicTimes(stored);
+            return (Epic) TaskSnapshot.copyOf(stored);
+        });
+        epic.setStartTime(result.getStartTime());
+        epic.setEndTime(result.getEndTime());
+        epic.setDuration(result.getDuration());
+    }
+
+    // Деревья расписания во время перестройки нельзя обходить без блокировки, а снимок
+    // ещё и кешируется при чтении, поэтому запросы к расписанию идут под блокировкой чтения
+    @Override
+    public List<Task> getHistory() {
+        return read(() -> TaskSnapshot.copies(super.getHistory()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> TaskSnapshot.copies(super.getPrioritizedTasks()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> TaskSnapshot.copies(super.getPrioritizedTasks(from, to)));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(long duration, LocalDateTime after, LocalDateTime before) {
+        return read(() -> super.findFreeSlot(duration, after, before));
+    }
+
+    // Снимок обновляется писателями по затронутым id при каждой записи, поэтому чтение снимка
+    // не берёт блокировку и не задерживает запись; под блокировкой собирается только первый снимок
+    @Override
+    public TaskSnapshot snapshot() {
+        TaskSnapshot current = published;
+        if (current != null) {
+            return current;
+        }
+        return write(() -> {
+            if (published == null) {
+                published = super.snapshot();
+            }
+            return published;
+        });
+    }
+
+    @Override
+    public List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after) {
+        return write(() -> super.scheduleTasks(requests, after));
+    }
+
+    // Без блокировки структуры могут меняться прямо во время чтения; исключение или результат
+    // считаются только если штамп остался действительным, иначе чтение повторяется под блокировкой
+    private <T> T optimisticRead(Supplier<T> action) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = action.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        return read(action);
+    }
+
+    private <T> T read(Supplier<T> action) {
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void read(Runnable action) {
+        read(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T write(Supplier<T> action) {
+        long stamp = lock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            try {
+                if (published != null) {
+                    published = super.snapshot();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void write(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -1,29 +1,95 @@
 package service.task;
 
-import exception.ManagerLoadException;
-import exception.ManagerSaveException;
 import model.Epic;
+import model.ScheduleRequest;
 import model.SubTask;
 import model.Task;
-import util.TaskStatus;
+import service.storage.CompactionStats;
+import service.storage.CsvSnapshotCodec;
+import service.storage.Durability;
+import service.storage.JournalCompactor;
+import service.storage.Snapshot;
+import service.storage.SnapshotCodec;
+import service.storage.TaskJournal;
+import util.JournalOperation;
+import util.PersistenceMode;
+import util.SnapshotFormat;
 import util.TaskType;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
     private static final String TASK_CSV = "task.csv";
+    private static final String JOURNAL_EXTENSION = ".log";
+    private static final String HISTORY_EXTENSION = ".history";
+    private static final int SNAPSHOT_INTERVAL = 1000;
+    private static final int HISTORY_SLACK = 1000;
     private final File file;
+    private final PersistenceMode mode;
+    private final SnapshotCodec codec;
+    private final TaskJournal journal;
+    private final TaskJournal historyJournal;
+    private final JournalCompactor compactor;
+    private final int snapshotInterval;
+    private boolean restoring;
+    private int historyBase;
+    // Номер последней записи журналов изменений и просмотров; снимок хранит номер последней вошедшей в него
+    private long sequence;
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, SnapshotCodec codec, Durability durability,
+                                 int snapshotInterval) {
+        this.file = file;
+        this.mode = mode;
+        this.codec = codec;
+        this.snapshotInterval = snapshotInterval;
+        this.journal = new TaskJournal(new File(file.getPath() + JOURNAL_EXTENSION), durability);
+        // Просмотры не должны ждать диска: потеря последних из них при сбое допустима, изменений — нет
+        this.historyJournal = new TaskJournal(new File(file.getPath() + HISTORY_EXTENSION), durability.relaxed());
+        this.compactor = new JournalCompactor(file, codec);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, SnapshotFormat format, Durability durability,
+                                 int snapshotInterval) {
+        this(file, mode, SnapshotCodec.of(format), durability, snapshotInterval);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, Durability durability, int snapshotInterval) {
+        this(file, mode, SnapshotFormat.CSV, durability, snapshotInterval);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, Durability durability) {
+        this(file, mode, durability, SNAPSHOT_INTERVAL);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode, int snapshotInterval) {
+        this(file, mode, Durability.sync(), snapshotInterval);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode) {
+        this(file, mode, SNAPSHOT_INTERVAL);
+    }
+
+    public FileBackedTaskManager(File file, SnapshotCodec codec) {
+        this(file, PersistenceMode.SNAPSHOT, codec, Durability.sync(), SNAPSHOT_INTERVAL);
+    }
+
+    public FileBackedTaskManager(File file, SnapshotFormat format) {
+        this(file, SnapshotCodec.of(format));
+    }
 
     public FileBackedTaskManager(File file) {
-        this.file = file;
+        this(file, PersistenceMode.SNAPSHOT);
     }
 
     public FileBackedTaskManager() {
-        this.file = new File(TASK_CSV);
+        this(new File(TASK_CSV));
     }
 
     public void init() {
@@ -31,146 +97,221 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        return loadFromFile(file, PersistenceMode.SNAPSHOT);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, SnapshotCodec codec) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, codec);
+        manager.init();
+        return manager;
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, SnapshotFormat format) {
+        return loadFromFile(file, SnapshotCodec.of(format));
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode) {
+        return loadFromFile(file, mode, Durability.sync());
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode, Durability durability) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, mode, durability);
         manager.init();
         return manager;
     }
 
+    public File getJournalFile() {
+        return journal.getFile();
+    }
+
+    public File getHistoryFile() {
+        return historyJournal.getFile();
+    }
+
+    public CompactionStats getCompactionStats() {
+        return compactor.getStats();
+    }
+
+    public boolean compact() {
+        if (mode == PersistenceMode.SNAPSHOT || compactor.isRunning()) {
+            return false;
+        }
+        if (journal.hasSegment() || historyJournal.hasSegment()) {
+            // Предыдущее фоновое сжатие не завершилось: сегменты сворачиваются синхронно
+            save();
+            journal.reset();
+            return true;
+        }
+        List<Task> tasks = Stream.of(super.getTasks(), super.getEpics(), super.getSubTasks())
+                .flatMap(Collection::stream)
+                .map(FileBackedTaskManager::copyOf)
+                .collect(Collectors.toList());
+        int foldedRecords = journal.size() + historyJournal.size();
+        List<File> segments = List.of(journal.rotate(), historyJournal.rotate());
+        historyBase = 0;
+        return compactor.compact(tasks, historyIds(), sequence, foldedRecords, segments);
+    }
+
+    public void close() {
+        compactor.close();
+        journal.close();
+        historyJournal.close();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
     @Override
     public void deleteAllTasks() {
         super.deleteAllTasks();
-        save();
+        persist(JournalOperation.CLEAR_TASKS, "");
     }
 
     @Override
     public void deleteAllEpics() {
         super.deleteAllEpics();
-        save();
+        persist(JournalOperation.CLEAR_EPICS, "");
     }
 
     @Override
     public void deleteAllSubTasks(Epic epic) {
         super.deleteAllSubTasks(epic);
-        save();
+        persist(JournalOperation.CLEAR_SUBTASKS, String.valueOf(epic.getId()));
     }
 
     @Override
     public Task createTask(Task task) {
         Task newTask = super.createTask(task);
-        save();
+        persist(JournalOperation.PUT, CsvSnapshotCodec.toString(newTask));
         return newTask;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
         Epic newEpic = super.createEpic(epic);
-        save();
+        persist(JournalOperation.PUT, CsvSnapshotCodec.toString(newEpic));
         return newEpic;
     }
 
     @Override
     public SubTask createSubTask(SubTask subTask) {
         SubTask newSubTask = super.createSubTask(subTask);
-        save();
+        persist(JournalOperation.PUT, CsvSnapshotCodec.toString(newSubTask));
         return newSubTask;
     }
 
     @Override
     public void updateTask(Task task) {
         super.updateTask(task);
-        save();
+        persist(JournalOperation.PUT, CsvSnapshotCodec.toString(task));
     }
 
     @Override
     public void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        persist(JournalOperation.PUT, CsvSnapshotCodec.toString(epic));
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
         super.updateSubTask(subTask);
-        save();
+        persist(JournalOperation.PUT, CsvSnapshotCodec.toString(subTask));
     }
 
     @Override
     public void removeTaskById(int id) {
         super.removeTaskById(id);
-        save();
+        persist(JournalOperation.REMOVE, String.valueOf(id));
     }
 
     @Override
     public void removeEpicById(int id) {
         super.removeEpicById(id);
-        save();
+        persist(JournalOperation.REMOVE, String.valueOf(id));
     }
 
     @Override
     public void removeSubTaskById(int id) {
         super.removeSubTaskById(id);
-        save();
+        persist(JournalOperation.REMOVE, String.valueOf(id));
+    }
+
+    @Override
+    public List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after) {
+        List<Task> scheduled = super.scheduleTasks(requests, after);
+        persistAll(scheduled.stream()
+                .map(task -> JournalOperation.PUT + "," + CsvSnapshotCodec.toString(task))
+                .toList());
+        return scheduled;
     }
 
     @Override
     public Task getTaskById(int id) {
         Task getTask = super.getTaskById(id);
-        save();
+        persistView(id);
         return getTask;
     }
 
     @Override
     public Epic getEpicById(int id) {
         Epic getEpic = super.getEpicById(id);
-        save();
+        persistView(id);
         return getEpic;
     }
 
     @Override
     public SubTask getSubTaskById(int id) {
         SubTask getSubTask = super.getSubTaskById(id);
-        save();
+        persistView(id);
         return getSubTask;
     }
 
-    private String toString(Task task) {
-        return task.getId() + "," + task.getType() + "," + task.getName() + "," + task.getStatus() + ","
-                + task.getDescription() + "," + task.getEpicId() + "," + task.getStartTime() + "," + task.getDuration();
-    }
-
-    private static Task fromString(String value) {
-        final String[] columns = value.split(",");
-
-        int id = Integer.parseInt(columns[0]);
-        TaskType type = TaskType.valueOf(columns[1]);
-        String name = columns[2];
-        TaskStatus status = TaskStatus.valueOf(columns[3]);
-        String description = columns[4];
-        int epicId = -1;
-        if (type == TaskType.SUBTASK) {
-            epicId = Integer.parseInt(columns[5]);
+    private void restore(Task task) {
+        switch (task.getType()) {
+            case TASK -> super.restoreTask(task);
+            case EPIC -> super.restoreEpic((Epic) task);
+            case SUBTASK -> super.restoreSubTask((SubTask) task);
         }
-
-        LocalDateTime startTime = Objects.equals(columns[6], "null") ? null : LocalDateTime.parse(columns[6]);
-        Long duration = Objects.equals(columns[7], "null") ? null : Long.parseLong(columns[7]);
-
-        return switch (type) {
-            case TASK -> new Task(id, name, status, description, startTime, duration);
-            case SUBTASK -> new SubTask(epicId, id, name, status, description, startTime, duration);
-            case EPIC -> new Epic(id, name, status, description, new ArrayList<>(), startTime, duration);
-        };
-    }
-
-    private static String historyToString(List<Task> history) {
-        return history.stream()
-                .map(Task::getId)
-                .map(Objects::toString)
-                .collect(Collectors.joining(","));
     }
 
-    private static List<Integer> historyFromString(String value) {
-        return Arrays.stream(value.split(","))
-                .map(Integer::valueOf)
-                .collect(Collectors.toList());
+    // Запись журнала: номер, операция и данные. Записи с номером не больше сохранённого в снимке уже вошли
+    // в него - это сегмент, не удалённый из-за сбоя после замены снимка, - и пропускаются.
+    // Записи без номера остались от журналов прежнего формата и применяются всегда
+    private int applyRecord(String record, long folded) {
+        long number = 0;
+        if (!record.isEmpty() && Character.isDigit(record.charAt(0))) {
+            int separator = record.indexOf(',');
+            number = Long.parseLong(record.substring(0, separator));
+            record = record.substring(separator + 1);
+        }
+        if (number != 0 && number <= folded) {
+            return 0;
+        }
+        sequence = Math.max(sequence, number);
+        int separator = record.indexOf(',');
+        JournalOperation operation = JournalOperation.valueOf(separator < 0 ? record : record.substring(0, separator));
+        String payload = separator < 0 ? "" : record.substring(separator + 1);
+        switch (operation) {
+            case PUT -> {
+                Task task = CsvSnapshotCodec.fromString(payload);
+                // Запись могла уже попасть в снимок вместе с последующим удалением эпика:
+                // такая подзадача удалена вместе с ним и не восстанавливается
+                if (task.getType() != TaskType.SUBTASK) {
+                    restore(task);
+                } else if (super.containsEpic(task.getEpicId())) {
+                    super.replaySubTask((SubTask) task);
+                }
+                return task.getId();
+            }
+            case REMOVE -> super.restoreRemoval(Integer.parseInt(payload));
+            case CLEAR_TASKS -> super.deleteAllTasks();
+            case CLEAR_EPICS -> super.deleteAllEpics();
+            case CLEAR_SUBTASKS -> super.restoreSubTasksRemoval(Integer.parseInt(payload));
+            case VIEW -> super.recordView(Integer.parseInt(payload));
+        }
+        return 0;
     }
 
     private void loadFromFile() {
@@ -187,55 +328,114 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                 throw new RuntimeException("Произошла ошибка при создании файла.", e);
             }
         }
-        try (final BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            reader.readLine();
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                final Task task = fromString(line);
-                final int id = task.getId();
-                switch (task.getType()) {
-                    case TASK -> super.restoreTask(task);
-                    case EPIC -> super.restoreEpic((Epic) task);
-                    case SUBTASK -> super.restoreSubTask((SubTask) task);
+        restoring = true;
+        super.beginBulkRestore();
+        try {
+            Snapshot snapshot = codec.read(file);
+            long folded = snapshot.sequence();
+            sequence = folded;
+            // Подзадачи восстанавливаются после эпиков: разделы снимка могут идти в любом порядке
+            for (Task task : snapshot.tasks()) {
+                if (task.getType() != TaskType.SUBTASK) {
+                    restore(task);
+                }
+                maxId = Math.max(maxId, task.getId());
+            }
+            for (Task task : snapshot.tasks()) {
+                if (task.getType() == TaskType.SUBTASK) {
+                    restore(task);
                 }
-
-                maxId = Math.max(maxId, id);
             }
+            snapshot.history().forEach(super::recordView);
+            if (mode == PersistenceMode.JOURNAL) {
+                // Журнал может повторять изменения, уже попавшие в снимок: каждая задача приходит
+                // к своему последнему состоянию из журнала, а записи об удалённых эпиках пропускаются
+                final int[] journalMaxId = {maxId};
+                journal.replay(record -> journalMaxId[0] = Math.max(journalMaxId[0], applyRecord(record, folded)));
+                maxId = journalMaxId[0];
+            }
+            historyJournal.replay(record -> applyRecord(record, folded));
             super.setSeq(maxId);
-            if ((line = reader.readLine()) != null) {
-                historyFromString(line).stream()
-                        .map(super::getTaskById)
-                        .filter(Objects::nonNull)
-                        .forEach(super.getHistoryManager()::add);
+        } finally {
+            super.finishBulkRestore();
+            restoring = false;
+        }
+        boolean journalSegment = mode == PersistenceMode.JOURNAL && journal.hasSegment();
+        if (journalSegment || historyJournal.hasSegment()) {
+            // Сбой во время сжатия: состояние уже восстановлено из сегментов, фиксируем его новым снимком
+            save();
+            if (journalSegment) {
+                journal.reset();
             }
+        }
+    }
+
+    private static Task copyOf(Task task) {
+        Task copy = switch (task.getType()) {
+            case TASK -> new Task(task.getId(), task.getName(), task.getStatus(), task.getDescription(),
+                    task.getStartTime(), task.getDuration());
+            case EPIC -> new Epic(task.getId(), task.getName(), task.getStatus(), task.getDescription(),
+                    new ArrayList<>(), task.getStartTime(), task.getDuration());
+            case SUBTASK -> new SubTask(task.getEpicId(), task.getId(), task.getName(), task.getStatus(),
+                    task.getDescription(), task.getStartTime(), task.getDuration());
+        };
+        copy.setVersion(task.getVersion());
+        return copy;
+    }
+
+    private List<Integer> historyIds() {
+        return getHistory().stream()
+                .map(Task::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void persist(JournalOperation operation, String payload) {
+        persistAll(List.of(payload.isEmpty() ? operation.name() : operation + "," + payload));
+    }
 
-        } catch (IOException e) {
-            throw new ManagerLoadException("Произошла ошибка при чтении файла.", e);
+    // Пакет изменений сохраняется одним снимком или одной записью в журнал
+    private void persistAll(List<String> records) {
+        if (restoring) {
+            return;
+        }
+        if (mode == PersistenceMode.SNAPSHOT) {
+            save();
+            return;
+        }
+        journal.appendAll(records.stream()
+                .map(this::numbered)
+                .toList());
+        if (journal.size() >= snapshotInterval) {
+            compact();
         }
     }
 
-    private void save() {
-        try (final BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.append("id,type,name,status,description,epicId");
-            Stream.of(super.getTasks(), super.getEpics(), super.getSubTasks())
-                    .flatMap(Collection::stream)
-                    .forEach(task -> {
-                        try {
-                            writer.newLine();
-                            writer.append(toString(task));
-                        } catch (IOException e) {
-                            throw new ManagerSaveException("Ошибка про попытке записи списка задач.", e);
-                        }
-                    });
-            String historyIds = historyToString(getHistory());
-            if (!historyIds.isEmpty()) {
-                writer.newLine();
-                writer.newLine();
-                writer.append(historyIds);
-            }
-        } catch (IOException e) {
-            throw new ManagerSaveException("Произошла ошибка при записи файла.", e);
+    private void persistView(int id) {
+        if (restoring) {
+            return;
+        }
+        historyJournal.append(numbered(JournalOperation.VIEW + "," + id));
+        // Без изменений снимок не пишется, поэтому журнал просмотров переписывается текущей историей,
+        // когда повторных просмотров в нём становится больше, чем задач в самой истории
+        if (historyJournal.size() > 2 * historyBase + HISTORY_SLACK) {
+            List<Integer> history = historyIds();
+            historyJournal.rewrite(history.stream()
+                    .map(viewed -> numbered(JournalOperation.VIEW + "," + viewed))
+                    .toList());
+            historyBase = history.size();
         }
+    }
+
+    private void save() {
+        List<Task> tasks = Stream.of(super.getTasks(), super.getEpics(), super.getSubTasks())
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList());
+        codec.writeAtomically(file, tasks, historyIds(), sequence);
+        historyJournal.reset();
+        historyBase = 0;
+    }
 
+    private String numbered(String record) {
+        return ++sequence + "," + record;
     }
 }
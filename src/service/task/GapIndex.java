@@ -0,0 +1,148 @@
+package service.task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Свободные промежутки расписания в декартовом дереве по началу промежутка.
+// Каждый узел хранит наибольшую длину промежутка в своём поддереве, что позволяет
+// найти самый ранний подходящий промежуток за O(log n)
+class GapIndex {
+    private Node root;
+
+    void put(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            return;
+        }
+        root = remove(root, start);
+        Node[] parts = split(root, start);
+        root = merge(merge(parts[0], new Node(start, end)), parts[1]);
+    }
+
+    void remove(LocalDateTime start) {
+        root = remove(root, start);
+    }
+
+    // Самое раннее начало не раньше after, с которого свободно duration до before (null - без ограничения)
+    LocalDateTime find(Duration duration, LocalDateTime after, LocalDateTime before) {
+        LocalDateTime start = null;
+        Node containing = floor(root, after);
+        if (containing != null && !Duration.between(after, containing.end).minus(duration).isNegative()) {
+            start = after;
+        } else {
+            Node next = first(root, after, duration);
+            if (next != null) {
+                start = next.start;
+            }
+        }
+        if (start == null || before != null && start.plus(duration).isAfter(before)) {
+            return null;
+        }
+        return start;
+    }
+
+    private static Node floor(Node node, LocalDateTime key) {
+        Node result = null;
+        while (node != null) {
+            if (node.start.isAfter(key)) {
+                node = node.left;
+            } else {
+                result = node;
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    // Первый по порядку промежуток с началом не раньше key и длиной не меньше duration
+    private static Node first(Node node, LocalDateTime key, Duration duration) {
+        if (node == null || node.maxLength.compareTo(duration) < 0) {
+            return null;
+        }
+        if (node.start.isBefore(key)) {
+            return first(node.right, key, duration);
+        }
+        Node left = first(node.left, key, duration);
+        if (left != null) {
+            return left;
+        }
+        if (node.length.compareTo(duration) >= 0) {
+            return node;
+        }
+        return first(node.right, key, duration);
+    }
+
+    private static Node remove(Node node, LocalDateTime start) {
+        if (node == null) {
+            return null;
+        }
+        int compare = start.compareTo(node.start);
+        if (compare == 0) {
+            return merge(node.left, node.right);
+        }
+        if (compare < 0) {
+            node.left = remove(node.left, start);
+        } else {
+            node.right = remove(node.right, start);
+        }
+        return node.update();
+    }
+
+    // Делит дерево на узлы с началом раньше key и все остальные
+    private static Node[] split(Node node, LocalDateTime key) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (node.start.isBefore(key)) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            return new Node[]{node.update(), parts[1]};
+        }
+        Node[] parts = split(node.left, key);
+        node.left = parts[1];
+        return new Node[]{parts[0], node.update()};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.update();
+        }
+        right.left = merge(left, right.left);
+        return right.update();
+    }
+
+    private static class Node {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final Duration length;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Duration maxLength;
+        private Node left;
+        private Node right;
+
+        Node(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+            this.length = Duration.between(start, end);
+            update();
+        }
+
+        Node update() {
+            maxLength = length;
+            if (left != null && left.maxLength.compareTo(maxLength) > 0) {
+                maxLength = left.maxLength;
+            }
+            if (right != null && right.maxLength.compareTo(maxLength) > 0) {
+                maxLength = right.maxLength;
+            }
+            return this;
+        }
+    }
+}
@@ -3,86 +3,102 @@ package service.task;
 import exception.NotFoundException;
 import exception.ValidationException;
 import model.Epic;
+import model.ScheduleRequest;
 import model.SubTask;
 import model.Task;
 import service.Managers;
 import service.history.HistoryManager;
+import util.IntMap;
+import util.IntSet;
 import util.TaskStatus;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class InMemoryTaskManager implements TaskManager {
-    private final HashMap<Integer, Task> tasks;
-    private final HashMap<Integer, Epic> epics;
-    private final HashMap<Integer, SubTask> subTasks;
+    private final IntMap<Task> tasks;
+    private final IntMap<Epic> epics;
+    private final IntMap<SubTask> subTasks;
     private final HistoryManager historyManager;
-    private final Comparator<Task> comparator = Comparator.comparing(Task::getStartTime);
-    private final TreeSet<Task> prioritizedTasks = new TreeSet<>(comparator);
-    private int seq = 0;
+    private final ScheduleIndex schedule = new ScheduleIndex();
+    private volatile ScheduleSnapshot prioritizedTasks = ScheduleSnapshot.EMPTY;
+    private final AtomicInteger seq = new AtomicInteger();
+    private boolean bulkRestore;
+    // После первого снимка запоминаются id изменённых задач: следующий снимок копирует только их
+    private TaskSnapshot published;
+    private IntSet changed = new IntSet();
+    private boolean changedAll;
 
     private int generateId() {
-        return seq++;
+        return seq.getAndIncrement();
     }
 
     public InMemoryTaskManager() {
-        this.historyManager = Managers.getDefaultHistory();
-        this.tasks = new HashMap<>();
-        this.epics = new HashMap<>();
-        this.subTasks = new HashMap<>();
+        this(Managers.getDefaultHistory());
+    }
+
+    protected InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        this.tasks = new IntMap<>();
+        this.epics = new IntMap<>();
+        this.subTasks = new IntMap<>();
     }
 
     public void setSeq(int maxId) {
-        seq = maxId + 1;
+        seq.set(maxId + 1);
     }
 
     @Override
     public List<Task> getTasks() {
-        return new ArrayList<>(tasks.values());
+        return tasks.values();
     }
 
     @Override
     public List<Epic> getEpics() {
-        return new ArrayList<>(epics.values());
+        return epics.values();
     }
 
     @Override
     public List<SubTask> getSubTasks() {
-        return new ArrayList<>(subTasks.values());
+        return subTasks.values();
     }
 
     @Override
     public void deleteAllTasks() {
-        for (Integer id : tasks.keySet()) {
-            historyManager.remove(id);
-            prioritizedTasks.remove(tasks.get(id));
-        }
+        tasks.forEachValue(task -> {
+            historyManager.remove(task.getId());
+            unschedule(task);
+        });
         tasks.clear();
+        touchAll();
     }
 
     @Override
     public void deleteAllEpics() {
-        for (Integer id : subTasks.keySet()) {
-            historyManager.remove(id);
-            prioritizedTasks.remove(subTasks.get(id));
-        }
-        epics.keySet().forEach(historyManager::remove);
+        subTasks.forEachValue(subTask -> {
+            historyManager.remove(subTask.getId());
+            unschedule(subTask);
+        });
+        epics.forEachKey(historyManager::remove);
         subTasks.clear();
         epics.clear();
+        touchAll();
     }
 
     @Override
     public void deleteAllSubTasks(Epic epic) {
-        List<Integer> subTaskIdsCopy = new ArrayList<>(epic.getSubTaskIds());
-        for (Integer id : subTaskIdsCopy) {
-            epic.removeSubTaskById(id);
+        epic.getSubTaskIds().forEach(id -> {
             historyManager.remove(id);
-            prioritizedTasks.remove(subTasks.get(id));
-            subTasks.remove(id);
-        }
-        calculateEpicStatus(epic);
-        calculateEpicTimes(epic);
+            unschedule(subTasks.remove(id));
+            touch(id);
+        });
+        epic.getSubTaskIds().clear();
+        epic.discardSubTasks();
+        TaskVersions.next(epic);
+        touch(epic.getId());
     }
 
     @Override
@@ -117,27 +133,29 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public Task createTask(Task task) {
-        if (checkTasksIntersection(task)) {
+        if (schedule.intersects(task, null)) {
             throw new ValidationException("Время выполнения задачи пересекается с существующей.");
         }
         task.setId(generateId());
+        task.setVersion(1);
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
+        schedule(task);
+        touch(task.getId());
         return task;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
         epic.setId(generateId());
+        epic.setVersion(1);
         epics.put(epic.getId(), epic);
+        touch(epic.getId());
         return epic;
     }
 
     @Override
     public SubTask createSubTask(SubTask subTask) {
-        if (checkTasksIntersection(subTask)) {
+        if (schedule.intersects(subTask, null)) {
             throw new ValidationException("Время выполнения подзадачи пересекается с существующей.");
         }
         if (!epics.containsKey(subTask.getEpicId())) {
@@ -145,31 +163,33 @@ public class InMemoryTaskManager implements TaskManager {
         }
 
         subTask.setId(generateId());
+        subTask.setVersion(1);
         subTasks.put(subTask.getId(), subTask);
-        if (subTask.getStartTime() != null) {
-            prioritizedTasks.add(subTask);
-        }
+        schedule(subTask);
         Epic epic = epics.get(subTask.getEpicId());
         epic.addSubTaskById(subTask.getId());
-        calculateEpicStatus(epic);
-        calculateEpicTimes(epic);
+        epic.applySubTask(subTask);
+        TaskVersions.next(epic);
+        touch(subTask.getId());
+        touch(epic.getId());
         return subTask;
     }
 
     @Override
     public void updateTask(Task task) {
-        if (!tasks.containsKey(task.getId())) {
+        Task stored = tasks.get(task.getId());
+        if (stored == null) {
             throw new NotFoundException("Не найдено задачи с id: " + task.getId());
         }
-        if (checkTasksIntersection(task)) {
+        TaskVersions.check(task, stored.getVersion());
+        if (schedule.intersects(task, task.getId())) {
             throw new ValidationException("Время выполнения задачи пересекается с существующей.");
         }
 
-        tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.remove(tasks.get(task.getId()));
-            prioritizedTasks.add(task);
-        }
+        task.setVersion(stored.getVersion() + 1);
+        unschedule(tasks.put(task.getId(), task));
+        schedule(task);
+        touch(task.getId());
     }
 
     @Override
@@ -178,30 +198,47 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NotFoundException("Не найдено эпика с id: " + epic.getId());
         }
         Epic updatedEpic = epics.get(epic.getId());
+        TaskVersions.check(epic, updatedEpic.getVersion());
         updatedEpic.setName(epic.getName());
         updatedEpic.setDescription(epic.getDescription());
+        TaskVersions.next(updatedEpic);
+        epic.setVersion(updatedEpic.getVersion());
         epics.put(updatedEpic.getId(), updatedEpic);
+        touch(epic.getId());
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
-        if (!subTasks.containsKey(subTask.getId())) {
+        SubTask stored = subTasks.get(subTask.getId());
+        if (stored == null) {
             throw new NotFoundException("Не найдено подзадачи с id: " + subTask.getId());
         }
-        if (checkTasksIntersection(subTask)) {
+        TaskVersions.check(subTask, stored.getVersion());
+        if (schedule.intersects(subTask, subTask.getId())) {
             throw new ValidationException("Время выполнения подзадачи пересекается с существующей.");
         }
         Epic epic = epics.get(subTask.getEpicId());
         if (epic == null) {
             throw new NotFoundException("Не найдено эпика с id: " + subTask.getEpicId());
         }
-        if (subTask.getStartTime() != null) {
-            prioritizedTasks.remove(subTasks.get(subTask.getId()));
-            prioritizedTasks.add(subTask);
+        subTask.setVersion(stored.getVersion() + 1);
+        SubTask previous = subTasks.put(subTask.getId(), subTask);
+        unschedule(previous);
+        schedule(subTask);
+        if (!Objects.equals(previous.getEpicId(), subTask.getEpicId())) {
+            Epic previousEpic = epics.get(previous.getEpicId());
+            if (previousEpic != null) {
+                previousEpic.removeSubTaskById(subTask.getId());
+                previousEpic.discardSubTask(subTask.getId());
+                TaskVersions.next(previousEpic);
+                touch(previousEpic.getId());
+            }
+            epic.addSubTaskById(subTask.getId());
         }
-        subTasks.put(subTask.getId(), subTask);
-        calculateEpicStatus(epic);
-        calculateEpicTimes(epic);
+        epic.applySubTask(subTask);
+        TaskVersions.next(epic);
+        touch(subTask.getId());
+        touch(epic.getId());
     }
 
     @Override
@@ -210,8 +247,9 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NotFoundException("Не найдено задачи с id: " + id);
         }
         historyManager.remove(id);
-        prioritizedTasks.remove(tasks.get(id));
+        unschedule(tasks.get(id));
         tasks.remove(id);
+        touch(id);
     }
 
     @Override
@@ -220,12 +258,14 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             throw new NotFoundException("Не найдено эпика с id: " + id);
         }
-        for (Integer subTaskId : epic.getSubTaskIds()) {
-            subTasks.remove(subTaskId);
+        epic.getSubTaskIds().forEach(subTaskId -> {
+            unschedule(subTasks.remove(subTaskId));
             historyManager.remove(subTaskId);
-        }
+            touch(subTaskId);
+        });
         historyManager.remove(id);
         epics.remove(id);
+        touch(id);
     }
 
     @Override
@@ -239,19 +279,27 @@ public class InMemoryTaskManager implements TaskManager {
         }
         epic.removeSubTaskById(id);
         historyManager.remove(id);
-        prioritizedTasks.remove(subTasks.get(id));
+        unschedule(subTasks.get(id));
         subTasks.remove(id);
-        calculateEpicStatus(epic);
-        calculateEpicTimes(epic);
+        epic.discardSubTask(id);
+        TaskVersions.next(epic);
+        touch(id);
+        touch(epic.getId());
     }
 
     @Override
     public List<SubTask> getEpicSubTasks(Epic epic) {
         return epic.getSubTaskIds().stream()
-                .map(subTasks::get)
+                .filter(subTasks::containsKey)
+                .mapToObj(subTasks::get)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<SubTask> getEpicSubTasks(int epicId) {
+        return getEpicSubTasks(getEpicById(epicId));
+    }
+
     @Override
     public HistoryManager getHistoryManager() {
         return historyManager;
@@ -263,8 +311,92 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     @Override
-    public TreeSet<Task> getPrioritizedTasks() {
-        return prioritizedTasks;
+    public List<Task> getPrioritizedTasks() {
+        return prioritized();
+    }
+
+    // Новый снимок разделяет с предыдущим все неизменённые задачи, поэтому его сборка стоит
+    // O(изменений * log n), а не копирования всего состояния
+    @Override
+    public TaskSnapshot snapshot() {
+        if (published == null || changedAll) {
+            published = TaskSnapshot.of(tasks.values(), epics.values(), subTasks.values());
+        } else if (!changed.isEmpty()) {
+            published = published.with(changed, this::find);
+        }
+        changed = new IntSet();
+        changedAll = false;
+        return published;
+    }
+
+    private List<Task> prioritized() {
+        // Список пересобирается только после изменения расписания, повторные чтения его разделяют
+        ScheduleSnapshot snapshot = prioritizedTasks;
+        if (snapshot.version() != schedule.version()) {
+            snapshot = new ScheduleSnapshot(schedule.version(), schedule.ids().stream()
+                    .map(this::scheduledTask)
+                    .toList());
+            prioritizedTasks = snapshot;
+        }
+        return snapshot.tasks();
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(long duration, LocalDateTime after, LocalDateTime before) {
+        if (duration <= 0) {
+            throw new ValidationException("Длительность должна быть положительной.");
+        }
+        LocalDateTime start = schedule.findFreeSlot(Duration.ofMinutes(duration), after, before);
+        if (start == null) {
+            throw new NotFoundException("Не найдено свободного времени длительностью " + duration + " мин.");
+        }
+        return start;
+    }
+
+    // Задачи по очереди занимают самые ранние подходящие промежутки; если хоть одна не помещается
+    // до своего срока, весь план откатывается
+    @Override
+    public List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after) {
+        List<Task> scheduled = new ArrayList<>();
+        try {
+            for (ScheduleRequest request : requests.stream().sorted(ScheduleRequest.ORDER).toList()) {
+                Task task = tasks.containsKey(request.taskId()) ? tasks.get(request.taskId())
+                        : subTasks.get(request.taskId());
+                if (task == null) {
+                    throw new NotFoundException("Не найдено задачи или подзадачи с id: " + request.taskId());
+                }
+                task.setStartTime(schedule.plan(task, after, request.deadline()));
+                schedule(task);
+                scheduled.add(task);
+            }
+        } catch (RuntimeException e) {
+            for (Task task : scheduled) {
+                unschedule(task);
+                task.setStartTime(null);
+            }
+            throw e;
+        }
+        for (Task task : scheduled) {
+            TaskVersions.next(task);
+            touch(task.getId());
+            if (task instanceof SubTask subTask) {
+                Epic epic = epics.get(subTask.getEpicId());
+                epic.applySubTask(subTask);
+                TaskVersions.next(epic);
+                touch(epic.getId());
+            }
+        }
+        return scheduled;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Начало периода должно быть раньше его окончания.");
+        }
+        return schedule.overlapping(from, to).stream()
+                .map(this::scheduledTask)
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -273,9 +405,10 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NotFoundException("Не найдено эпика");
         }
         List<SubTask> subTasksList = epic.getSubTaskIds().stream()
-                .map(subTasks::get)
+                .mapToObj(subTasks::get)
                 .toList();
 
+        touch(epic.getId());
         if (subTasksList.isEmpty()) {
             epic.setStatus(TaskStatus.NEW);
             return;
@@ -308,7 +441,8 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             throw new NotFoundException("Не найдено эпика");
         }
-        List<Integer> subTaskIds = epic.getSubTaskIds();
+        IntSet subTaskIds = epic.getSubTaskIds();
+        touch(epic.getId());
 
         if (subTaskIds.isEmpty()) {
             epic.setStartTime(null);
@@ -321,7 +455,7 @@ public class InMemoryTaskManager implements TaskManager {
         LocalDateTime maxEndTime = null;
         long totalDuration = 0;
 
-        for (Integer id : subTaskIds) {
+        for (int id : subTaskIds.toArray()) {
             SubTask subTask = subTasks.get(id);
             if (subTask == null) {
                 continue;
@@ -347,12 +481,40 @@ public class InMemoryTaskManager implements TaskManager {
         epic.setDuration(totalDuration);
     }
 
+    // Эпик менеджера без записи в историю: наследники, выдающие наружу копии, меняют через него хранимый экземпляр
+    protected Epic storedEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика с id: " + id);
+        }
+        return epic;
+    }
+
+    protected boolean containsEpic(int id) {
+        return epics.containsKey(id);
+    }
+
+    // Сохранённая версия задачи восстанавливается как есть; в записях без версии (0) она отсчитывается заново
     protected void restoreTask(Task task) {
-        tasks.put(task.getId(), task);
+        Task previous = tasks.put(task.getId(), task);
+        restoreVersion(task, previous);
+        unschedule(previous);
+        schedule(task);
+        touch(task.getId());
     }
 
     protected void restoreEpic(Epic epic) {
+        Epic previous = epics.get(epic.getId());
+        if (previous != null) {
+            previous.setName(epic.getName());
+            previous.setDescription(epic.getDescription());
+            previous.setVersion(epic.getVersion() == 0 ? previous.getVersion() + 1 : epic.getVersion());
+            touch(previous.getId());
+            return;
+        }
+        restoreVersion(epic, null);
         epics.put(epic.getId(), epic);
+        touch(epic.getId());
     }
 
     protected void restoreSubTask(SubTask subTask) {
@@ -360,25 +522,121 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NotFoundException("Не найдено эпика с id: " + subTask.getEpicId());
         }
 
-        subTasks.put(subTask.getId(), subTask);
+        SubTask previous = subTasks.put(subTask.getId(), subTask);
+        restoreVersion(subTask, previous);
         Epic epic = epics.get(subTask.getEpicId());
-        epic.addSubTaskById(subTask.getId());
-        calculateEpicStatus(epic);
-        calculateEpicTimes(epic);
+        if (previous == null) {
+            epic.addSubTaskById(subTask.getId());
+        } else {
+            unschedule(previous);
+            if (!Objects.equals(previous.getEpicId(), subTask.getEpicId())) {
+                Epic previousEpic = epics.get(previous.getEpicId());
+                if (previousEpic != null) {
+                    previousEpic.removeSubTaskById(previous.getId());
+                    if (!bulkRestore) {
+                        previousEpic.discardSubTask(previous.getId());
+                    }
+                    touch(previousEpic.getId());
+                }
+                epic.addSubTaskById(subTask.getId());
+            }
+        }
+        schedule(subTask);
+        if (!bulkRestore) {
+            epic.applySubTask(subTask);
+        }
+        touch(subTask.getId());
+        touch(epic.getId());
     }
 
-    private boolean checkTasksIntersection(Task task) {
-        //false - нет пересечений | true - есть пересечения
-        LocalDateTime taskStart = task.getStartTime();
-        LocalDateTime taskEnd = task.getEndTime();
+    // Изменение подзадачи из журнала. В снимке версия эпика записана вместе с ним, а при повторе журнала
+    // эпики, которых коснулось изменение, получают следующую версию, как и при самом изменении
+    protected void replaySubTask(SubTask subTask) {
+        SubTask previous = subTasks.get(subTask.getId());
+        restoreSubTask(subTask);
+        if (previous != null && !Objects.equals(previous.getEpicId(), subTask.getEpicId())
+                && epics.containsKey(previous.getEpicId())) {
+            TaskVersions.next(epics.get(previous.getEpicId()));
+        }
+        TaskVersions.next(epics.get(subTask.getEpicId()));
+    }
 
-        return prioritizedTasks.stream().anyMatch(prioritizedTask -> {
-            LocalDateTime priorTaskStart = prioritizedTask.getStartTime();
-            LocalDateTime priorTaskEnd = prioritizedTask.getEndTime();
+    protected void beginBulkRestore() {
+        bulkRestore = true;
+    }
 
-            return (taskStart.isEqual(priorTaskStart) || taskEnd.isEqual(priorTaskEnd)) ||
-                    (taskStart.isBefore(priorTaskStart) && taskEnd.isAfter(priorTaskStart)) ||
-                    (taskStart.isAfter(priorTaskStart) && taskStart.isBefore(priorTaskEnd));
+    // Агрегаты каждого эпика собираются один раз после загрузки всех подзадач
+    protected void finishBulkRestore() {
+        bulkRestore = false;
+        epics.values().parallelStream().forEach(epic -> {
+            epic.discardSubTasks();
+            epic.getSubTaskIds().forEach(id -> epic.applySubTask(subTasks.get(id)));
         });
+        touchAll();
+    }
+
+    // Просмотр по id: в историю попадает хранимый экземпляр, если задача ещё существует
+    protected void recordView(int id) {
+        Task task = find(id);
+        if (task != null) {
+            historyManager.add(task);
+        }
+    }
+
+    protected void restoreRemoval(int id) {
+        if (tasks.containsKey(id)) {
+            removeTaskById(id);
+        } else if (epics.containsKey(id)) {
+            removeEpicById(id);
+        } else if (subTasks.containsKey(id)) {
+            removeSubTaskById(id);
+        }
+    }
+
+    protected void restoreSubTasksRemoval(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic != null) {
+            deleteAllSubTasks(epic);
+        }
+    }
+
+    private static void restoreVersion(Task task, Task previous) {
+        if (task.getVersion() == 0) {
+            task.setVersion(previous == null ? 1 : previous.getVersion() + 1);
+        }
+    }
+
+    private Task find(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task == null ? subTasks.get(id) : task;
+    }
+
+    private void touch(int id) {
+        if (published != null) {
+            changed.add(id);
+        }
+    }
+
+    private void touchAll() {
+        if (published != null) {
+            changedAll = true;
+        }
+    }
+
+    private Task scheduledTask(int id) {
+        return tasks.containsKey(id) ? tasks.get(id) : subTasks.get(id);
+    }
+
+    private void schedule(Task task) {
+        schedule.put(task);
+    }
+
+    private void unschedule(Task task) {
+        if (task != null) {
+            schedule.remove(task.getId());
+        }
     }
 }
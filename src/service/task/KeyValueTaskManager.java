@@ -0,0 +1,524 @@
+package service.task;
+
+import exception.NotFoundException;
+import exception.ValidationException;
+import model.Epic;
+import model.ScheduleRequest;
+import model.SubTask;
+import model.Task;
+import service.Managers;
+import service.history.HistoryManager;
+import service.storage.Durability;
+import service.storage.KeyValueStore;
+import service.storage.TaskJournal;
+import service.storage.TaskRecordCodec;
+import util.JournalOperation;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Поля задач хранятся на диске и читаются по ключу, но индекс держится в памяти целиком: смещение записи
+// и тип каждой задачи, слот расписания каждой задачи со временем, а для каждого эпика - состав и агрегат
+// статуса и времени. Память растёт линейно с числом задач: названия и описания в неё не попадают,
+// но на каждую задачу приходится несколько объектов, так что размер доски всё равно ограничен кучей.
+// Состав эпика выводится из epicId подзадач, поэтому запись эпика хранит лишь его поля и агрегат
+public class KeyValueTaskManager implements TaskManager {
+    private static final String TASK_STORE = "task.db";
+    private static final String HISTORY_EXTENSION = ".history";
+    private static final int HISTORY_SLACK = 1000;
+    private final KeyValueStore store;
+    private final TaskJournal historyJournal;
+    private final HistoryManager historyManager;
+    private final HashMap<Integer, TaskType> types = new HashMap<>();
+    private final HashMap<Integer, Epic> aggregates = new HashMap<>();
+    private final ScheduleIndex schedule = new ScheduleIndex();
+    private volatile ScheduleSnapshot prioritizedTasks = ScheduleSnapshot.EMPTY;
+    private long version;
+    private int seq = 0;
+
+    public KeyValueTaskManager(File file) {
+        this.store = new KeyValueStore(file);
+        this.historyJournal = new TaskJournal(new File(file.getPath() + HISTORY_EXTENSION),
+                Durability.sync().relaxed());
+        this.historyManager = Managers.getDefaultHistory();
+        load();
+    }
+
+    public KeyValueTaskManager() {
+        this(new File(TASK_STORE));
+    }
+
+    public File getHistoryFile() {
+        return historyJournal.getFile();
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return readAll(TaskType.TASK);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return readAll(TaskType.EPIC);
+    }
+
+    @Override
+    public List<SubTask> getSubTasks() {
+        return readAll(TaskType.SUBTASK);
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        idsOf(TaskType.TASK).forEach(this::delete);
+        store.flush();
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        idsOf(TaskType.SUBTASK).forEach(this::delete);
+        idsOf(TaskType.EPIC).forEach(this::delete);
+        aggregates.clear();
+        store.flush();
+    }
+
+    @Override
+    public void deleteAllSubTasks(Epic epic) {
+        Epic aggregate = aggregate(epic.getId());
+        aggregate.getSubTaskIds().forEach(this::delete);
+        aggregate.getSubTaskIds().clear();
+        aggregate.discardSubTasks();
+        Epic stored = recalculate(epic.getId());
+        store.flush();
+        copyEpicState(stored, epic);
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        Task task = read(id, TaskType.TASK, "Не найдено задачи с id: ");
+        view(task);
+        return task;
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        Epic epic = readEpic(id);
+        view(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTaskById(int id) {
+        SubTask subTask = (SubTask) read(id, TaskType.SUBTASK, "Не найдено подзадачи с id: ");
+        view(subTask);
+        return subTask;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        if (schedule.intersects(task, null)) {
+            throw new ValidationException("Время выполнения задачи пересекается с существующей.");
+        }
+        task.setId(seq++);
+        task.setVersion(1);
+        write(task);
+        store.flush();
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(seq++);
+        epic.setVersion(1);
+        epic.getSubTaskIds().clear();
+        aggregates.put(epic.getId(), new Epic(epic.getName(), epic.getDescription()));
+        write(epic);
+        store.flush();
+        return epic;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        if (schedule.intersects(subTask, null)) {
+            throw new ValidationException("Время выполнения подзадачи пересекается с существующей.");
+        }
+        Epic aggregate = aggregate(subTask.getEpicId());
+        subTask.setId(seq++);
+        subTask.setVersion(1);
+        // Подзадача пишется раньше эпика: при сбое между записями load() пересчитает эпик
+        write(subTask);
+        aggregate.addSubTaskById(subTask.getId());
+        aggregate.applySubTask(subTask);
+        recalculate(subTask.getEpicId());
+        store.flush();
+        return subTask;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (types.get(task.getId()) != TaskType.TASK) {
+            throw new NotFoundException("Не найдено задачи с id: " + task.getId());
+        }
+        long version = TaskRecordCodec.decode(store.get(task.getId())).getVersion();
+        TaskVersions.check(task, version);
+        if (schedule.intersects(task, task.getId())) {
+            throw new ValidationException("Время выполнения задачи пересекается с существующей.");
+        }
+        task.setVersion(version + 1);
+        write(task);
+        store.flush();
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        Epic stored = readEpic(epic.getId());
+        TaskVersions.check(epic, stored.getVersion());
+        stored.setName(epic.getName());
+        stored.setDescription(epic.getDescription());
+        TaskVersions.next(stored);
+        epic.setVersion(stored.getVersion());
+        write(stored);
+        store.flush();
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        if (types.get(subTask.getId()) != TaskType.SUBTASK) {
+            throw new NotFoundException("Не найдено подзадачи с id: " + subTask.getId());
+        }
+        SubTask previous = (SubTask) TaskRecordCodec.decode(store.get(subTask.getId()));
+        TaskVersions.check(subTask, previous.getVersion());
+        if (schedule.intersects(subTask, subTask.getId())) {
+            throw new ValidationException("Время выполнения подзадачи пересекается с существующей.");
+        }
+        Epic aggregate = aggregate(subTask.getEpicId());
+        subTask.setVersion(previous.getVersion() + 1);
+        write(subTask);
+        if (!Objects.equals(previous.getEpicId(), subTask.getEpicId())) {
+            Epic previousAggregate = aggregate(previous.getEpicId());
+            previousAggregate.removeSubTaskById(subTask.getId());
+            previousAggregate.discardSubTask(subTask.getId());
+            recalculate(previous.getEpicId());
+            aggregate.addSubTaskById(subTask.getId());
+        }
+        aggregate.applySubTask(subTask);
+        recalculate(subTask.getEpicId());
+        store.flush();
+    }
+
+    @Override
+    public void removeTaskById(int id) {
+        if (types.get(id) != TaskType.TASK) {
+            throw new NotFoundException("Не найдено задачи с id: " + id);
+        }
+        delete(id);
+        store.flush();
+    }
+
+    @Override
+    public void removeEpicById(int id) {
+        Epic aggregate = aggregate(id);
+        aggregate.getSubTaskIds().forEach(this::delete);
+        delete(id);
+        aggregates.remove(id);
+        store.flush();
+    }
+
+    @Override
+    public void removeSubTaskById(int id) {
+        SubTask subTask = (SubTask) read(id, TaskType.SUBTASK, "Не найдено подзадачи с id: ");
+        Epic aggregate = aggregate(subTask.getEpicId());
+        aggregate.removeSubTaskById(id);
+        aggregate.discardSubTask(id);
+        delete(id);
+        recalculate(subTask.getEpicId());
+        store.flush();
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(Epic epic) {
+        return epic.getSubTaskIds().stream()
+                .filter(store::contains)
+                .mapToObj(id -> (SubTask) TaskRecordCodec.decode(store.get(id)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(int epicId) {
+        return getEpicSubTasks(getEpicById(epicId));
+    }
+
+    @Override
+    public void calculateEpicStatus(Epic epic) {
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика");
+        }
+        epic.setStatus(aggregate(epic.getId()).getStatus());
+    }
+
+    @Override
+    public void calculateEpicTimes(Epic epic) {
+        if (epic == null) {
+            throw new NotFoundException("Не найдено эпика");
+        }
+        applyTimes(epic);
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    // История хранит только порядок просмотров, содержимое задач читается из хранилища
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory().stream()
+                .map(task -> decode(task.getId()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        // Задачи читаются из хранилища заново только после изменений
+        ScheduleSnapshot snapshot = prioritizedTasks;
+        if (snapshot.version() != version) {
+            snapshot = new ScheduleSnapshot(version, schedule.ids().stream()
+                    .map(id -> TaskRecordCodec.decode(store.get(id)))
+                    .toList());
+            prioritizedTasks = snapshot;
+        }
+        return snapshot.tasks();
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(long duration, LocalDateTime after, LocalDateTime before) {
+        if (duration <= 0) {
+            throw new ValidationException("Длительность должна быть положительной.");
+        }
+        LocalDateTime start = schedule.findFreeSlot(Duration.ofMinutes(duration), after, before);
+        if (start == null) {
+            throw new NotFoundException("Не найдено свободного времени длительностью " + duration + " мин.");
+        }
+        return start;
+    }
+
+    @Override
+    public List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after) {
+        List<Task> scheduled = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>();
+        try {
+            for (ScheduleRequest request : requests.stream().sorted(ScheduleRequest.ORDER).toList()) {
+                TaskType type = types.get(request.taskId());
+                if (type != TaskType.TASK && type != TaskType.SUBTASK) {
+                    throw new NotFoundException("Не найдено задачи или подзадачи с id: " + request.taskId());
+                }
+                if (!ids.add(request.taskId())) {
+                    throw new ValidationException("Задача с id: " + request.taskId() + " уже запланирована.");
+                }
+                Task task = TaskRecordCodec.decode(store.get(request.taskId()));
+                task.setStartTime(schedule.plan(task, after, request.deadline()));
+                schedule.put(task);
+                scheduled.add(task);
+            }
+        } catch (RuntimeException e) {
+            scheduled.forEach(task -> schedule.remove(task.getId()));
+            throw e;
+        }
+        // Весь план записывается одним пакетом с одной синхронизацией с диском
+        Set<Integer> epicIds = new LinkedHashSet<>();
+        for (Task task : scheduled) {
+            TaskVersions.next(task);
+            write(task);
+            if (task instanceof SubTask subTask) {
+                aggregate(subTask.getEpicId()).applySubTask(subTask);
+                epicIds.add(subTask.getEpicId());
+            }
+        }
+        epicIds.forEach(this::recalculate);
+        store.flush();
+        return scheduled;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public TaskSnapshot snapshot() {
+        return TaskSnapshot.of(getTasks(), getEpics(), getSubTasks());
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Начало периода должно быть раньше его окончания.");
+        }
+        return schedule.overlapping(from, to).stream()
+                .map(id -> TaskRecordCodec.decode(store.get(id)))
+                .collect(Collectors.toList());
+    }
+
+    public void close() {
+        store.close();
+        historyJournal.close();
+    }
+
+    private void load() {
+        List<Epic> epics = new ArrayList<>();
+        List<SubTask> subTasks = new ArrayList<>();
+        for (Integer id : store.keys()) {
+            Task task = TaskRecordCodec.decode(store.get(id));
+            index(task);
+            seq = Math.max(seq, id + 1);
+            if (task instanceof Epic epic) {
+                epics.add(epic);
+                aggregates.put(id, new Epic(epic.getName(), epic.getDescription()));
+            } else if (task instanceof SubTask subTask) {
+                subTasks.add(subTask);
+            }
+        }
+        subTasks.sort(Comparator.comparingInt(Task::getId));
+        for (SubTask subTask : subTasks) {
+            Epic aggregate = aggregates.get(subTask.getEpicId());
+            if (aggregate != null) {
+                aggregate.addSubTaskById(subTask.getId());
+                aggregate.applySubTask(subTask);
+            }
+        }
+        // Запись эпика могла не попасть на диск после записи подзадачи: агрегат пересчитывается заново
+        for (Epic epic : epics) {
+            Epic aggregate = aggregates.get(epic.getId());
+            if (epic.getStatus() != aggregate.getStatus()
+                    || !Objects.equals(epic.getStartTime(), aggregate.getStartTime())
+                    || !Objects.equals(epic.getEndTime(), aggregate.getEndTime())
+                    || epic.getDuration() != aggregate.getDuration()) {
+                recalculate(epic.getId());
+            }
+        }
+        store.flush();
+        historyJournal.replay(record -> {
+            int id = Integer.parseInt(record.substring(record.indexOf(',') + 1));
+            if (types.containsKey(id)) {
+                historyManager.add(decode(id));
+            }
+        });
+    }
+
+    private Task read(int id, TaskType type, String message) {
+        if (types.get(id) != type) {
+            throw new NotFoundException(message + id);
+        }
+        return decode(id);
+    }
+
+    private Epic readEpic(Integer id) {
+        return (Epic) read(id == null ? -1 : id, TaskType.EPIC, "Не найдено эпика с id: ");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> readAll(TaskType type) {
+        return idsOf(type).stream()
+                .map(id -> (T) decode(id))
+                .collect(Collectors.toList());
+    }
+
+    private List<Integer> idsOf(TaskType type) {
+        return types.entrySet().stream()
+                .filter(entry -> entry.getValue() == type)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void write(Task task) {
+        store.put(task.getId(), TaskRecordCodec.encode(task instanceof Epic epic ? withoutSubTasks(epic) : task));
+        index(task);
+    }
+
+    // Эпик собирается из записи и состава, который хранится в памяти
+    private Task decode(int id) {
+        Task task = TaskRecordCodec.decode(store.get(id));
+        if (task instanceof Epic epic) {
+            epic.getSubTaskIds().clear();
+            Epic aggregate = aggregates.get(id);
+            if (aggregate != null) {
+                aggregate.getSubTaskIds().forEach(epic::addSubTaskById);
+            }
+        }
+        return task;
+    }
+
+    private Epic aggregate(Integer epicId) {
+        Epic aggregate = epicId == null ? null : aggregates.get(epicId);
+        if (aggregate == null) {
+            throw new NotFoundException("Не найдено эпика с id: " + epicId);
+        }
+        return aggregate;
+    }
+
+    private void applyTimes(Epic epic) {
+        Epic aggregate = aggregate(epic.getId());
+        epic.setStartTime(aggregate.getStartTime());
+        epic.setEndTime(aggregate.getEndTime());
+        epic.setDuration(aggregate.getDuration());
+    }
+
+    private static Epic withoutSubTasks(Epic epic) {
+        Epic record = new Epic(epic.getId(), epic.getName(), epic.getStatus(), epic.getDescription(), List.of(),
+                epic.getStartTime(), epic.hasDuration() ? epic.getDuration() : null);
+        record.setEndTime(epic.getEndTime());
+        record.setVersion(epic.getVersion());
+        return record;
+    }
+
+    private void delete(int id) {
+        store.remove(id);
+        version++;
+        types.remove(id);
+        schedule.remove(id);
+        historyManager.remove(id);
+    }
+
+    private void index(Task task) {
+        version++;
+        types.put(task.getId(), task.getType());
+        if (task.getType() != TaskType.EPIC) {
+            schedule.put(task);
+        }
+    }
+
+    // Перечитывается только запись самого эпика, подзадачи не декодируются.
+    // Вызывается и из конструктора, поэтому не обращается к переопределяемым методам
+    private Epic recalculate(int epicId) {
+        Epic epic = (Epic) TaskRecordCodec.decode(store.get(epicId));
+        epic.setStatus(aggregate(epicId).getStatus());
+        applyTimes(epic);
+        TaskVersions.next(epic);
+        write(epic);
+        return epic;
+    }
+
+    private void copyEpicState(Epic source, Epic target) {
+        target.getSubTaskIds().clear();
+        target.setStatus(source.getStatus());
+        target.setStartTime(source.getStartTime());
+        target.setEndTime(source.getEndTime());
+        target.setDuration(source.getDuration());
+        target.setVersion(source.getVersion());
+    }
+
+    private void view(Task task) {
+        historyManager.add(task);
+        historyJournal.append(JournalOperation.VIEW + "," + task.getId());
+        // Журнал просмотров периодически переписывается текущей историей
+        if (historyJournal.size() > types.size() + HISTORY_SLACK) {
+            historyJournal.rewrite(historyManager.getHistory().stream()
+                    .map(viewed -> JournalOperation.VIEW + "," + viewed.getId())
+                    .toList());
+        }
+    }
+}
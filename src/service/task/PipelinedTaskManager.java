@@ -0,0 +1,426 @@
+package service.task;
+
+import exception.NotFoundException;
+import model.Epic;
+import model.ScheduleRequest;
+import model.SubTask;
+import model.Task;
+import service.Managers;
+import service.history.HistoryManager;
+import service.history.SynchronizedHistoryManager;
+import util.RingBuffer;
+import util.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Менеджер с одним потоком-писателем. Изменения передаются командами через RingBuffer и применяются
+// пачками к InMemoryTaskManager, с которым работает только этот поток; после каждой пачки публикуется
+// неизменяемый снимок, в котором заново скопированы лишь затронутые пачкой задачи, и лишь затем
+// завершаются future команд. Чтения идут по последней
+// опубликованной копии без блокировок и выдают отдельные экземпляры задач. Старые копии не изменяются,
+// поэтому закрепивший снимок запрос дочитывает свою версию, не задерживая писателя
+public final class PipelinedTaskManager implements TaskManager, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int BATCH_SIZE = 64;
+    private static final int SPIN_LIMIT = 100;
+    private static final int YIELD_LIMIT = 200;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final RingBuffer<Submission<?>> commands;
+    private final HistoryManager historyManager = new SynchronizedHistoryManager(Managers.getDefaultHistory());
+    private final InMemoryTaskManager target = new InMemoryTaskManager(new WriterHistory(historyManager));
+    private final Thread writer;
+    private volatile TaskSnapshot state = TaskSnapshot.EMPTY;
+    private volatile boolean running = true;
+
+    @FunctionalInterface
+    public interface Command<T> {
+        T apply(TaskManager manager);
+    }
+
+    public PipelinedTaskManager(int capacity) {
+        commands = new RingBuffer<>(capacity);
+        writer = new Thread(this::process, "task-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public PipelinedTaskManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Команда выполняется в потоке-писателе; future завершается после публикации её результата.
+    // Задачи, полученные командой от менеджера, принадлежат писателю и не должны попадать в результат
+    public <T> CompletableFuture<T> submit(Command<T> command) {
+        Submission<T> submission = new Submission<>(command);
+        int attempts = 0;
+        while (!commands.offer(submission)) {
+            ensureRunning();
+            LockSupport.unpark(writer);
+            backoff(attempts++);
+        }
+        ensureRunning();
+        LockSupport.unpark(writer);
+        return submission.future;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        rejectPending();
+    }
+
+    @Override
+    public TaskSnapshot snapshot() {
+        return state;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return state.getTasks();
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return state.getEpics();
+    }
+
+    @Override
+    public List<SubTask> getSubTasks() {
+        return state.getSubTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        run(TaskManager::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        run(TaskManager::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubTasks(Epic epic) {
+        int id = epic.getId();
+        run(manager -> manager.deleteAllSubTasks(manager.getEpicById(id)));
+        epic.getSubTaskIds().clear();
+        epic.discardSubTasks();
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return view(id, TaskType.TASK, "Не найдено задачи с id: ");
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return (Epic) view(id, TaskType.EPIC, "Не найдено эпика с id: ");
+    }
+
+    @Override
+    public SubTask getSubTaskById(int id) {
+        return (SubTask) view(id, TaskType.SUBTASK, "Не найдено подзадачи с id: ");
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        Task copy = TaskSnapshot.copyOf(task);
+        task.setId(call(manager -> manager.createTask(copy).getId()));
+        task.setVersion(copy.getVersion());
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        Epic copy = (Epic) TaskSnapshot.copyOf(epic);
+        epic.setId(call(manager -> manager.createEpic(copy).getId()));
+        epic.setVersion(copy.getVersion());
+        return epic;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        SubTask copy = (SubTask) TaskSnapshot.copyOf(subTask);
+        subTask.setId(call(manager -> manager.createSubTask(copy).getId()));
+        subTask.setVersion(copy.getVersion());
+        return subTask;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        Task copy = TaskSnapshot.copyOf(task);
+        run(manager -> manager.updateTask(copy));
+        task.setVersion(copy.getVersion());
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        Epic copy = (Epic) TaskSnapshot.copyOf(epic);
+        run(manager -> manager.updateEpic(copy));
+        epic.setVersion(copy.getVersion());
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        SubTask copy = (SubTask) TaskSnapshot.copyOf(subTask);
+        run(manager -> manager.updateSubTask(copy));
+        subTask.setVersion(copy.getVersion());
+    }
+
+    @Override
+    public void removeTaskById(int id) {
+        run(manager -> manager.removeTaskById(id));
+    }
+
+    @Override
+    public void removeEpicById(int id) {
+        run(manager -> manager.removeEpicById(id));
+    }
+
+    @Override
+    public void removeSubTaskById(int id) {
+        run(manager -> manager.removeSubTaskById(id));
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(Epic epic) {
+        TaskSnapshot snapshot = state;
+        List<SubTask> result = new ArrayList<>();
+        epic.getSubTaskIds().forEach(id -> {
+            if (snapshot.find(id) instanceof SubTask subTask) {
+                result.add((SubTask) TaskSnapshot.copyOf(subTask));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasks(int epicId) {
+        TaskSnapshot snapshot = state;
+        List<SubTask> subTasks = snapshot.getEpicSubTasks(epicId);
+        historyManager.add(snapshot.find(epicId));
+        return subTasks;
+    }
+
+    // Писатель пересчитывает свой экземпляр эпика, вызывающему возвращается копия результата
+    @Override
+    public void calculateEpicStatus(Epic epic) {
+        int id = epic.getId();
+        Task result = call(manager -> {
+            Epic stored = manager.getEpicById(id);
+            manager.calculateEpicStatus(stored);
+            return TaskSnapshot.copyOf(stored);
+        });
+        epic.setStatus(result.getStatus());
+    }
+
+    @Override
+    public void calculateEpicTimes(Epic epic) {
+        int id = epic.getId();
+        Task result = call(manager -> {
+            Epic stored = manager.getEpicById(id);
+            manager.calculateEpicTimes(stored);
+            return TaskSnapshot.copyOf(stored);
+        });
+        epic.setStartTime(result.getStartTime());
+        epic.setEndTime(result.getEndTime());
+        epic.setDuration(result.getDuration());
+    }
+
+    @Override
+    public HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        TaskSnapshot snapshot = state;
+        return historyManager.getHistory().stream()
+                .map(task -> snapshot.find(task.getId()))
+                .filter(Objects::nonNull)
+                .map(TaskSnapshot::copyOf)
+                .toList();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return state.getPrioritizedTasks();
+    }
+
+    // Запросы к индексам расписания выполняются писателем: опубликованная копия индексов не содержит
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return call(manager -> TaskSnapshot.copies(manager.getPrioritizedTasks(from, to)));
+    }
+
+    @Override
+    public LocalDateTime findFreeSlot(long duration, LocalDateTime after, LocalDateTime before) {
+        return call(manager -> manager.findFreeSlot(duration, after, before));
+    }
+
+    @Override
+    public List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after) {
+        return call(manager -> TaskSnapshot.copies(manager.scheduleTasks(requests, after)));
+    }
+
+    private void process() {
+        List<Submission<?>> batch = new ArrayList<>(BATCH_SIZE);
+        boolean published = true;
+        try {
+            while (running || !commands.isEmpty()) {
+                commands.drainTo(batch::add, BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    if (published) {
+                        LockSupport.park(this);
+                    } else {
+                        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                        published = publish();
+                    }
+                    continue;
+                }
+                for (Submission<?> submission : batch) {
+                    submission.apply(target);
+                }
+                // Снимок обновляется один раз на пачку команд, а не после каждого изменения
+                published = publish();
+                // Команды уже изменили состояние писателя, поэтому их результаты возвращаются как есть,
+                // даже если снимок не удалось опубликовать: изменения попадут в следующий снимок
+                batch.forEach(Submission::complete);
+                batch.clear();
+            }
+        } finally {
+            // Писатель мог остановиться и из-за непредвиденной ошибки: ждущие команды не должны зависнуть
+            running = false;
+            batch.forEach(submission -> submission.future.completeExceptionally(
+                    new IllegalStateException("Менеджер задач закрыт")));
+            rejectPending();
+        }
+    }
+
+    // Неопубликованные изменения остаются в учёте писателя и войдут в следующий снимок: повтор выполняется
+    // со следующей пачкой или, если команд нет, после короткой паузы
+    private boolean publish() {
+        try {
+            state = target.snapshot();
+            return true;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void rejectPending() {
+        Submission<?> rejected;
+        while ((rejected = commands.poll()) != null) {
+            rejected.future.completeExceptionally(new IllegalStateException("Менеджер задач закрыт"));
+        }
+    }
+
+    // Очередь заполнена: сначала короткое ожидание, затем уступка процессора и засыпание с ростом интервала
+    private static void backoff(int attempts) {
+        if (attempts < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else if (attempts < YIELD_LIMIT) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1_000L << Math.min(attempts - YIELD_LIMIT, 10)));
+        }
+    }
+
+    private Task view(int id, TaskType type, String message) {
+        Task task = state.find(id);
+        if (task == null || task.getType() != type) {
+            throw new NotFoundException(message + id);
+        }
+        historyManager.add(task);
+        return TaskSnapshot.copyOf(task);
+    }
+
+    private <T> T call(Command<T> command) {
+        ensureRunning();
+        try {
+            return submit(command).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void run(Consumer<TaskManager> action) {
+        call(manager -> {
+            action.accept(manager);
+            return null;
+        });
+    }
+
+    private void ensureRunning() {
+        if (!running) {
+            throw new IllegalStateException("Менеджер задач закрыт");
+        }
+    }
+
+    private static final class Submission<T> {
+        private final Command<T> command;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private Throwable failure;
+
+        Submission(Command<T> command) {
+            this.command = command;
+        }
+
+        void apply(TaskManager manager) {
+            try {
+                result = command.apply(manager);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+
+    // Писатель получает задачи по id без записи в историю: просмотры записывают читатели,
+    // а удаления задач писатель передаёт в общую историю
+    private record WriterHistory(HistoryManager delegate) implements HistoryManager {
+        @Override
+        public void add(Task task) {
+        }
+
+        @Override
+        public void remove(int id) {
+            delegate.remove(id);
+        }
+
+        @Override
+        public List<Task> getHistory() {
+            return delegate.getHistory();
+        }
+    }
+}
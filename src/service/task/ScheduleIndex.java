@@ -0,0 +1,151 @@
+package service.task;
+
+import exception.ValidationException;
+import model.Task;
+import util.IntMap;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+// Интервалы задач со временем начала, упорядоченные по началу; хранятся копии границ, а не сами задачи.
+// Границы - секунды от эпохи с общей долей наносекунд (длительность кратна минуте), поэтому
+// сравнения в дереве и проверка пересечений не создают объектов времени
+class ScheduleIndex {
+    private final IntMap<Slot> slots = new IntMap<>();
+    private final TreeSet<Slot> schedule = new TreeSet<>(ScheduleIndex::compare);
+    private final GapIndex gaps = new GapIndex();
+    private long version;
+
+    ScheduleIndex() {
+        gaps.put(LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+
+    // Промежуток между соседями заменяется двумя: до нового интервала и после него
+    void put(Task task) {
+        remove(task.getId());
+        if (task.hasStartTime()) {
+            Slot slot = new Slot(task.getStartSecond(), task.getEndSecond(), task.getStartNano(), task.getId());
+            slots.put(slot.id(), slot);
+            schedule.add(slot);
+            LocalDateTime gapStart = gapStart(schedule.lower(slot));
+            gaps.remove(gapStart);
+            gaps.put(gapStart, time(slot.start(), slot.nano()));
+            gaps.put(time(slot.end(), slot.nano()), gapEnd(schedule.higher(slot)));
+            version++;
+        }
+    }
+
+    void remove(int id) {
+        Slot slot = slots.remove(id);
+        if (slot != null) {
+            LocalDateTime gapStart = gapStart(schedule.lower(slot));
+            gaps.remove(gapStart);
+            gaps.remove(time(slot.end(), slot.nano()));
+            gaps.put(gapStart, gapEnd(schedule.higher(slot)));
+            schedule.remove(slot);
+            version++;
+        }
+    }
+
+    // Меняется при каждом изменении расписания
+    long version() {
+        return version;
+    }
+
+    LocalDateTime findFreeSlot(Duration duration, LocalDateTime after, LocalDateTime before) {
+        return gaps.find(duration, after, before);
+    }
+
+    // Начало для ещё не запланированной задачи: самый ранний промежуток, где она закончится до deadline
+    LocalDateTime plan(Task task, LocalDateTime after, LocalDateTime deadline) {
+        if (task.hasStartTime()) {
+            throw new ValidationException("Задача с id: " + task.getId() + " уже запланирована.");
+        }
+        if (task.getDuration() <= 0) {
+            throw new ValidationException("У задачи с id: " + task.getId() + " не указана длительность.");
+        }
+        LocalDateTime start = gaps.find(Duration.ofMinutes(task.getDuration()), after, deadline);
+        if (start == null) {
+            throw new ValidationException("Не найдено свободного времени для задачи с id: " + task.getId());
+        }
+        return start;
+    }
+
+    List<Integer> ids() {
+        return schedule.stream().map(Slot::id).toList();
+    }
+
+    // Из-за непересекаемости интервалов дополнительный максимум концов не нужен: началу окна
+    // может предшествовать лишь один пересекающий его интервал, остальные начинаются внутри окна
+    List<Integer> overlapping(LocalDateTime from, LocalDateTime to) {
+        List<Integer> ids = new ArrayList<>();
+        Slot lowerBound = probe(from);
+        Slot previous = schedule.lower(lowerBound);
+        if (previous != null && compare(previous.end(), previous.nano(), lowerBound.start(), lowerBound.nano()) > 0) {
+            ids.add(previous.id());
+        }
+        schedule.subSet(lowerBound, true, probe(to), false)
+                .forEach(slot -> ids.add(slot.id()));
+        return ids;
+    }
+
+    // Интервалы не пересекаются, поэтому достаточно проверить ближайших соседей по времени начала.
+    // updatedId - id обновляемой задачи, её прежний интервал не учитывается
+    boolean intersects(Task task, Integer updatedId) {
+        if (!task.hasStartTime()) {
+            return false;
+        }
+        long start = task.getStartSecond();
+        long end = task.getEndSecond();
+        int nano = task.getStartNano();
+        Slot probe = new Slot(start, end, nano, Integer.MIN_VALUE);
+
+        Slot previous = schedule.lower(probe);
+        while (previous != null && updatedId != null && previous.id() == updatedId) {
+            previous = schedule.lower(previous);
+        }
+        if (previous != null && compare(previous.end(), previous.nano(), start, nano) > 0) {
+            return true;
+        }
+        Slot next = schedule.ceiling(probe);
+        while (next != null && updatedId != null && next.id() == updatedId) {
+            next = schedule.higher(next);
+        }
+        return next != null && (compare(next.start(), next.nano(), start, nano) == 0
+                || compare(next.start(), next.nano(), end, nano) < 0);
+    }
+
+    private static LocalDateTime gapStart(Slot previous) {
+        return previous == null ? LocalDateTime.MIN : time(previous.end(), previous.nano());
+    }
+
+    private static LocalDateTime gapEnd(Slot next) {
+        return next == null ? LocalDateTime.MAX : time(next.start(), next.nano());
+    }
+
+    private static Slot probe(LocalDateTime time) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        return new Slot(second, second, time.getNano(), Integer.MIN_VALUE);
+    }
+
+    private static LocalDateTime time(long second, int nano) {
+        return LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+    }
+
+    private static int compare(long second, int nano, long otherSecond, int otherNano) {
+        int result = Long.compare(second, otherSecond);
+        return result != 0 ? result : Integer.compare(nano, otherNano);
+    }
+
+    private static int compare(Slot slot, Slot other) {
+        int result = compare(slot.start(), slot.nano(), other.start(), other.nano());
+        return result != 0 ? result : Integer.compare(slot.id(), other.id());
+    }
+
+    private record Slot(long start, long end, int nano, int id) {
+    }
+}
@@ -0,0 +1,10 @@
+package service.task;
+
+import model.Task;
+
+import java.util.List;
+
+// Неизменяемый список задач по приоритету, собранный для определённой версии расписания
+record ScheduleSnapshot(long version, List<Task> tasks) {
+    static final ScheduleSnapshot EMPTY = new ScheduleSnapshot(0, List.of());
+}
@@ -1,12 +1,13 @@
 package service.task;
 
 import model.Epic;
+import model.ScheduleRequest;
 import model.SubTask;
 import model.Task;
 import service.history.HistoryManager;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.TreeSet;
 
 public interface TaskManager {
     List<Task> getTasks();
@@ -47,6 +48,9 @@ public interface TaskManager {
 
     List<SubTask> getEpicSubTasks(Epic epic);
 
+    // Подзадачи эпика, прочитанные вместе с ним; просмотр эпика попадает в историю
+    List<SubTask> getEpicSubTasks(int epicId);
+
     void calculateEpicStatus(Epic epic);
 
     void calculateEpicTimes(Epic epic);
@@ -55,5 +59,19 @@ public interface TaskManager {
 
     List<Task> getHistory();
 
-    TreeSet<Task> getPrioritizedTasks();
+    List<Task> getPrioritizedTasks();
+
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    LocalDateTime findFreeSlot(long duration, LocalDateTime after, LocalDateTime before);
+
+    List<Task> scheduleTasks(List<ScheduleRequest> requests, LocalDateTime after);
+
+    // Согласованное состояние для нескольких чтений подряд; дальнейшие изменения его не затрагивают
+    TaskSnapshot snapshot();
+
+    // Задачи и их версии сохраняются между запусками
+    default boolean isPersistent() {
+        return false;
+    }
 }
@@ -0,0 +1,186 @@
+package service.task;
+
+import exception.NotFoundException;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import util.IntMap;
+import util.IntSet;
+import util.PersistentSortedMap;
+import util.TaskType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+// Неизменяемое состояние менеджера на один момент. Запрос, закрепивший снимок, читает эпики,
+// подзадачи и расписание из одной версии, даже если менеджер тем временем изменяется.
+// Задачи снимка общие для всех его читателей, поэтому наружу выдаются их копии; просмотры
+// через снимок в историю не попадают
+public final class TaskSnapshot {
+    private static final Comparator<Integer> BY_ID = Integer::compare;
+    public static final TaskSnapshot EMPTY = new TaskSnapshot(PersistentSortedMap.empty(BY_ID),
+            PersistentSortedMap.empty(BY_ID), PersistentSortedMap.empty(BY_ID),
+            PersistentSortedMap.empty(ScheduleKey.ORDER));
+
+    private final PersistentSortedMap<Integer, Task> tasks;
+    private final PersistentSortedMap<Integer, Epic> epics;
+    private final PersistentSortedMap<Integer, SubTask> subTasks;
+    private final PersistentSortedMap<ScheduleKey, Task> prioritized;
+
+    private TaskSnapshot(PersistentSortedMap<Integer, Task> tasks, PersistentSortedMap<Integer, Epic> epics,
+                         PersistentSortedMap<Integer, SubTask> subTasks,
+                         PersistentSortedMap<ScheduleKey, Task> prioritized) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subTasks = subTasks;
+        this.prioritized = prioritized;
+    }
+
+    // Переданные задачи копируются, поэтому менеджер может дальше изменять свои экземпляры.
+    // Порядок расписания восстанавливается по времени начала, как в ScheduleIndex
+    public static TaskSnapshot of(List<Task> tasks, List<Epic> epics, List<SubTask> subTasks) {
+        IntSet ids = new IntSet(tasks.size() + epics.size() + subTasks.size());
+        IntMap<Task> byId = new IntMap<>(tasks.size() + epics.size() + subTasks.size());
+        Stream.of(tasks, epics, subTasks).flatMap(List::stream).forEach(task -> {
+            ids.add(task.getId());
+            byId.put(task.getId(), task);
+        });
+        return EMPTY.with(ids, byId::get);
+    }
+
+    // Новая версия снимка: копируются только задачи с изменившимися id, остальное общее с этой версией.
+    // current выдаёт текущую задачу по id или null, если её удалили
+    TaskSnapshot with(IntSet changed, IntFunction<? extends Task> current) {
+        PersistentSortedMap<Integer, Task> newTasks = tasks;
+        PersistentSortedMap<Integer, Epic> newEpics = epics;
+        PersistentSortedMap<Integer, SubTask> newSubTasks = subTasks;
+        PersistentSortedMap<ScheduleKey, Task> newPrioritized = prioritized;
+        for (int id : changed.toArray()) {
+            Task previous = find(id);
+            if (previous != null) {
+                switch (previous.getType()) {
+                    case TASK -> newTasks = newTasks.remove(id);
+                    case EPIC -> newEpics = newEpics.remove(id);
+                    case SUBTASK -> newSubTasks = newSubTasks.remove(id);
+                }
+                if (previous.getType() != TaskType.EPIC && previous.hasStartTime()) {
+                    newPrioritized = newPrioritized.remove(ScheduleKey.of(previous));
+                }
+            }
+            Task task = current.apply(id);
+            if (task == null) {
+                continue;
+            }
+            Task copy = copyOf(task);
+            switch (copy) {
+                case Epic epic -> newEpics = newEpics.put(id, epic);
+                case SubTask subTask -> newSubTasks = newSubTasks.put(id, subTask);
+                default -> newTasks = newTasks.put(id, copy);
+            }
+            if (copy.getType() != TaskType.EPIC && copy.hasStartTime()) {
+                newPrioritized = newPrioritized.put(ScheduleKey.of(copy), copy);
+            }
+        }
+        return new TaskSnapshot(newTasks, newEpics, newSubTasks, newPrioritized);
+    }
+
+    public List<Task> getTasks() {
+        return copies(tasks.values());
+    }
+
+    public List<Epic> getEpics() {
+        return copies(epics.values());
+    }
+
+    public List<SubTask> getSubTasks() {
+        return copies(subTasks.values());
+    }
+
+    public Task getTaskById(int id) {
+        return copyOf(find(id, TaskType.TASK, "Не найдено задачи с id: "));
+    }
+
+    public Epic getEpicById(int id) {
+        return (Epic) copyOf(find(id, TaskType.EPIC, "Не найдено эпика с id: "));
+    }
+
+    public SubTask getSubTaskById(int id) {
+        return (SubTask) copyOf(find(id, TaskType.SUBTASK, "Не найдено подзадачи с id: "));
+    }
+
+    // Подзадачи эпика в той же версии, что и сам эпик
+    public List<SubTask> getEpicSubTasks(int epicId) {
+        Epic epic = (Epic) find(epicId, TaskType.EPIC, "Не найдено эпика с id: ");
+        List<SubTask> result = new ArrayList<>(epic.getSubTaskIds().size());
+        epic.getSubTaskIds().forEach(id -> {
+            SubTask subTask = subTasks.get(id);
+            if (subTask != null) {
+                result.add((SubTask) copyOf(subTask));
+            }
+        });
+        return result;
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return copies(prioritized.values());
+    }
+
+    // Сама задача снимка без копирования, только для чтения внутри пакета
+    Task find(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task == null ? subTasks.get(id) : task;
+    }
+
+    static Task copyOf(Task task) {
+        Long duration = task.hasDuration() ? task.getDuration() : null;
+        Task copy = switch (task.getType()) {
+            case TASK -> new Task(task.getId(), task.getName(), task.getStatus(), task.getDescription(),
+                    task.getStartTime(), duration);
+            case SUBTASK -> new SubTask(task.getEpicId(), task.getId(), task.getName(), task.getStatus(),
+                    task.getDescription(), task.getStartTime(), duration);
+            case EPIC -> {
+                Epic epic = new Epic(task.getId(), task.getName(), task.getStatus(), task.getDescription(),
+                        List.of(), task.getStartTime(), duration);
+                ((Epic) task).getSubTaskIds().forEach(epic::addSubTaskById);
+                epic.setEndTime(task.getEndTime());
+                yield epic;
+            }
+        };
+        copy.setVersion(task.getVersion());
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Task> List<T> copies(List<T> tasks) {
+        List<T> result = new ArrayList<>(tasks.size());
+        for (T task : tasks) {
+            result.add((T) copyOf(task));
+        }
+        return result;
+    }
+
+    private Task find(int id, TaskType type, String message) {
+        Task task = find(id);
+        if (task == null || task.getType() != type) {
+            throw new NotFoundException(message + id);
+        }
+        return task;
+    }
+
+    // Ключ расписания: начало в секундах и наносекундах, затем id, как у слотов ScheduleIndex
+    private record ScheduleKey(long second, int nano, int id) {
+        static final Comparator<ScheduleKey> ORDER = Comparator.comparingLong(ScheduleKey::second)
+                .thenComparingInt(ScheduleKey::nano)
+                .thenComparingInt(ScheduleKey::id);
+
+        static ScheduleKey of(Task task) {
+            return new ScheduleKey(task.getStartSecond(), task.getStartNano(), task.getId());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package service.task;
+
+import exception.VersionConflictException;
+import model.Task;
+
+// Общие правила версий для менеджеров: создание даёт версию 1, каждое изменение - следующую
+final class TaskVersions {
+    private TaskVersions() {
+    }
+
+    // Версия 0 в изменении означает запись без проверки
+    static void check(Task update, long current) {
+        if (update.getVersion() != 0 && update.getVersion() != current) {
+            throw new VersionConflictException("Задача с id: " + update.getId() + " уже изменена: текущая версия "
+                    + current + ", ожидалась " + update.getVersion());
+        }
+    }
+
+    static void next(Task task) {
+        task.setVersion(task.getVersion() + 1);
+    }
+}
@@ -0,0 +1,5 @@
+package util;
+
+public enum DurabilityMode {
+    SYNC, GROUP_COMMIT, ASYNC
+}
@@ -0,0 +1,5 @@
+package util;
+
+public enum ExecutorMode {
+    DISPATCHER, VIRTUAL_THREADS, BOUNDED_POOL
+}
@@ -0,0 +1,192 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+// Отображение int -> объект без упаковки ключей и объектов-записей, с порядком добавления.
+// Устроено как IntSet: пары лежат подряд в массивах (null в values - удалённая пара),
+// индекс с открытой адресацией хранит позицию пары (+1, 0 - пустая ячейка)
+public class IntMap<V> {
+    private static final int MIN_CAPACITY = 8;
+    private int[] keys;
+    private Object[] values;
+    private int[] index;
+    private int count;
+    private int size;
+
+    public IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntMap(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        keys = new int[capacity];
+        values = new Object[capacity];
+        index = new int[tableSize(capacity)];
+    }
+
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : value(index[slot] - 1);
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        int slot = find(key);
+        if (slot >= 0) {
+            V previous = value(index[slot] - 1);
+            values[index[slot] - 1] = value;
+            return previous;
+        }
+        if (count == keys.length) {
+            rebuild(Math.max(MIN_CAPACITY, size * 2));
+        }
+        keys[count] = key;
+        values[count] = value;
+        count++;
+        size++;
+        insert(key, count);
+        return null;
+    }
+
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        int position = index[slot] - 1;
+        V previous = value(position);
+        values[position] = null;
+        delete(slot);
+        size--;
+        if (size < count / 2 && count > MIN_CAPACITY) {
+            rebuild(keys.length);
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, count, null);
+        Arrays.fill(index, 0);
+        count = 0;
+        size = 0;
+    }
+
+    public void forEachKey(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i]);
+            }
+        }
+    }
+
+    public void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                action.accept(value(i));
+            }
+        }
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                result[position++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEachValue(result::add);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int position) {
+        return (V) values[position];
+    }
+
+    private int find(int key) {
+        int mask = index.length - 1;
+        for (int slot = hash(key) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[index[slot] - 1] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int key, int position) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position;
+    }
+
+    // Удаление со сдвигом назад, как в IntSet
+    private void delete(int slot) {
+        int mask = index.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (index[next] != 0) {
+            int home = hash(keys[index[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[gap] = 0;
+    }
+
+    private void rebuild(int capacity) {
+        int[] newKeys = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                newKeys[position] = keys[i];
+                newValues[position] = values[i];
+                position++;
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+        index = new int[tableSize(capacity)];
+        count = position;
+        for (int i = 0; i < count; i++) {
+            insert(keys[i], i + 1);
+        }
+    }
+
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,166 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Множество int без упаковки, сохраняющее порядок добавления.
+// Элементы лежат подряд в массиве, удалённые помечаются и вычищаются при перестроении;
+// индекс с открытой адресацией хранит позицию элемента (+1, 0 - пустая ячейка)
+public class IntSet {
+    private static final int MIN_CAPACITY = 8;
+    private int[] elements;
+    private boolean[] removed;
+    private int[] index;
+    private int count;
+    private int size;
+
+    public IntSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntSet(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        elements = new int[capacity];
+        removed = new boolean[capacity];
+        index = new int[tableSize(capacity)];
+    }
+
+    public boolean add(int value) {
+        if (find(value) >= 0) {
+            return false;
+        }
+        if (count == elements.length) {
+            rebuild(Math.max(MIN_CAPACITY, size * 2));
+        }
+        elements[count] = value;
+        removed[count] = false;
+        count++;
+        size++;
+        insert(value, count);
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int slot = find(value);
+        if (slot < 0) {
+            return false;
+        }
+        removed[index[slot] - 1] = true;
+        delete(slot);
+        size--;
+        if (size < count / 2 && count > MIN_CAPACITY) {
+            rebuild(elements.length);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return find(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(index, 0);
+        count = 0;
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            if (!removed[i]) {
+                action.accept(elements[i]);
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[size];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (!removed[i]) {
+                values[position++] = elements[i];
+            }
+        }
+        return values;
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    public List<Integer> toList() {
+        List<Integer> values = new ArrayList<>(size);
+        forEach(values::add);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private int find(int value) {
+        int mask = index.length - 1;
+        for (int slot = hash(value) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            if (elements[index[slot] - 1] == value) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int value, int position) {
+        int mask = index.length - 1;
+        int slot = hash(value) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position;
+    }
+
+    // Удаление со сдвигом назад: цепочки проб остаются непрерывными без пометок-надгробий
+    private void delete(int slot) {
+        int mask = index.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (index[next] != 0) {
+            int home = hash(elements[index[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index[gap] = 0;
+    }
+
+    private void rebuild(int capacity) {
+        int[] values = toArray();
+        elements = Arrays.copyOf(values, capacity);
+        removed = new boolean[capacity];
+        index = new int[tableSize(capacity)];
+        count = values.length;
+        for (int i = 0; i < count; i++) {
+            insert(elements[i], i + 1);
+        }
+    }
+
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,5 @@
+package util;
+
+public enum JournalOperation {
+    PUT, REMOVE, CLEAR_TASKS, CLEAR_EPICS, CLEAR_SUBTASKS, VIEW
+}
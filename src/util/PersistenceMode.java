@@ -0,0 +1,5 @@
+package util;
+
+public enum PersistenceMode {
+    SNAPSHOT, JOURNAL
+}
@@ -0,0 +1,88 @@
+package util;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+// Ограниченная очередь без блокировок для многих писателей и одного читателя.
+// Каждая ячейка хранит номер позиции, для которой она свободна или заполнена: писатель занимает
+// позицию сдвигом хвоста через CAS и публикует элемент, увеличивая номер ячейки, читатель
+// забирает элементы строго по порядку и освобождает ячейку для следующего круга
+public class RingBuffer<T> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final int mask;
+    private long head;
+
+    public RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ёмкость должна быть степенью двойки: " + capacity);
+        }
+        elements = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // false, если очередь заполнена
+    public boolean offer(T element) {
+        Objects.requireNonNull(element);
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[slot] = element;
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Методы ниже вызываются только из потока-читателя
+    public T poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        T element = element(slot);
+        elements[slot] = null;
+        sequences.set(slot, head + elements.length);
+        head++;
+        return element;
+    }
+
+    public int drainTo(Consumer<? super T> consumer, int limit) {
+        int drained = 0;
+        T element;
+        while (drained < limit && (element = poll()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int slot) {
+        return (T) elements[slot];
+    }
+}
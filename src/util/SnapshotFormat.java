@@ -0,0 +1,5 @@
+package util;
+
+public enum SnapshotFormat {
+    CSV, BINARY
+}
@@ -0,0 +1,5 @@
+package util;
+
+public enum StringStorage {
+    HEAP, OFF_HEAP
+}
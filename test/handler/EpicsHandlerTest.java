@@ -3,6 +3,7 @@ package handler;
 import com.google.gson.Gson;
 import model.Epic;
 import model.SubTask;
+import model.Task;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,8 +17,10 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Обработчик пути /epics")
 class EpicsHandlerTest {
@@ -110,6 +113,27 @@ class EpicsHandlerTest {
                     "\"name\":\"Подзадача3\",\"status\":\"NEW\",\"description\":\"Описание3\"}]";
             assertEquals(200, response.statusCode(), "Неверный код ответа");
             assertEquals(expectedJson, response.body(), "Сервер ответил неверным JSON");
+            assertEquals(List.of(epic.getId()), taskManager.getHistory().stream().map(Task::getId).toList(),
+                    "Просмотр эпика не попал в историю");
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Во время выполнения запроса ресурса возникла ошибка.");
+        }
+    }
+
+    @DisplayName("должен возвращать 404 при GET-запросе подзадач несуществующего эпика")
+    @Test
+    void shouldReturnNotFoundOnGetSubtasksOfMissingEpic() {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create("http://localhost:8080/epics/" + subTask1.getId() + "/subtasks");
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(404, response.statusCode(), "Неверный код ответа");
+            assertTrue(taskManager.getHistory().isEmpty(), "Несуществующий эпик попал в историю");
         } catch (IOException | InterruptedException e) {
             System.out.println("Во время выполнения запроса ресурса возникла ошибка.");
         }
@@ -60,4 +60,85 @@ class PrioritizedHandlerTest {
         }
 
     }
-}
\ No newline at end of file
+
+    @DisplayName("должен возвращать задачи, пересекающие заданный период")
+    @Test
+    void shouldReturnTasksOverlappingWindow() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+            taskManager.createTask(new Task("Задача2", "Описание", basicLDT.plusHours(2), 60L));
+            taskManager.createTask(new Task("Задача3", "Описание", basicLDT.plusHours(4), 60L));
+
+            URI url = URI.create("http://localhost:8080/prioritized?from=2024-01-01T10:30&to=2024-01-01T14:00");
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            String expectedJson = "[{\"id\":0,\"name\":\"Задача1\",\"status\":\"NEW\",\"description\":\"Описание\"," +
+                    "\"duration\":\"PT1H\",\"startTime\":\"2024-01-01T10:00:00\"},{\"id\":1,\"name\":\"Задача2\"," +
+                    "\"status\":\"NEW\",\"description\":\"Описание\",\"duration\":\"PT1H\",\"startTime\":" +
+                    "\"2024-01-01T12:00:00\"}]";
+            assertEquals(200, response.statusCode(), "Неверный код ответа");
+            assertEquals(expectedJson, response.body(), "Сервер ответил неверным JSON");
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Во время выполнения запроса ресурса возникла ошибка.");
+        }
+    }
+
+    @DisplayName("должен возвращать ближайшее свободное время заданной длительности")
+    @Test
+    void shouldReturnFreeSlot() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+            taskManager.createTask(new Task("Задача2", "Описание", basicLDT.plusMinutes(90), 60L));
+
+            URI url = URI.create("http://localhost:8080/prioritized/free?duration=45&after=2024-01-01T10:30");
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Неверный код ответа");
+            assertEquals("{\"startTime\":\"2024-01-01T12:30:00\",\"endTime\":\"2024-01-01T13:15:00\"}",
+                    response.body(), "Сервер ответил неверным JSON");
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Во время выполнения запроса ресурса возникла ошибка.");
+        }
+    }
+
+    @DisplayName("должен раскодировать параметры и отвечать 400 на неверные значения")
+    @Test
+    void shouldDecodeParametersAndRejectMalformedValues() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+
+            HttpResponse<String> encoded = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/prioritized?from=2024-01-01T09%3A30&to=2024-01-01T10%3A30"))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, encoded.statusCode(), "Закодированные параметры не разобраны");
+
+            HttpResponse<String> badTime = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/prioritized?from=вчера&to=2024-01-01T10:30"))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, badTime.statusCode(), "Неверное время должно давать 400");
+
+            HttpResponse<String> badDuration = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/prioritized/free?duration=час&after=2024-01-01T10:30"))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, badDuration.statusCode(), "Неверная длительность должна давать 400");
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Во время выполнения запроса ресурса возникла ошибка.");
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import service.HttpTaskServer;
 import service.task.InMemoryTaskManager;
+import util.TaskStatus;
 
 import java.io.IOException;
 import java.net.URI;
@@ -17,6 +18,7 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 @DisplayName("Обработчик пути /tasks")
 class TasksHandlerTest {
@@ -167,4 +169,30 @@ class TasksHandlerTest {
             System.out.println("Во время выполнения запроса ресурса возникла ошибка.");
         }
     }
-}
\ No newline at end of file
+
+    @DisplayName("должен отдавать ETag и отклонять обновление по устаревшему ETag")
+    @Test
+    void shouldRejectUpdateWithStaleETag() throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create("http://localhost:8080/tasks/0");
+            HttpRequest get = HttpRequest.newBuilder().uri(url).GET().build();
+            String etag = client.send(get, HttpResponse.BodyHandlers.ofString()).headers()
+                    .firstValue("ETag").orElseThrow();
+
+            String postData = HttpTaskServer.getGson().toJson(new Task(0, "Изменённая", TaskStatus.DONE,
+                    "Описание", null, null));
+            HttpRequest update = HttpRequest.newBuilder()
+                    .uri(url)
+                    .header("If-Match", etag)
+                    .POST(HttpRequest.BodyPublishers.ofString(postData, StandardCharsets.UTF_8))
+                    .build();
+            HttpResponse<String> updated = client.send(update, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, updated.statusCode(), "Неверный код ответа");
+            assertNotEquals(etag, updated.headers().firstValue("ETag").orElseThrow(), "ETag не изменился");
+
+            HttpResponse<String> conflict = client.send(update, HttpResponse.BodyHandlers.ofString());
+            assertEquals(412, conflict.statusCode(), "Устаревший ETag должен отклоняться");
+            assertEquals("Изменённая", taskManager.getTaskById(0).getName(), "Задача не обновлена");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package service;
+
+import model.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.task.ConcurrentTaskManager;
+import util.ExecutorMode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Режимы выполнения обработчиков HTTP-сервера")
+class HttpTaskServerExecutorTest {
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 4;
+    private static final long HANDLER_DELAY_MS = 20;
+
+    @Test
+    @DisplayName("должен выполнять обработчики параллельно в пуле и виртуальных потоках, а диспетчером по одному")
+    void shouldRunHandlersConcurrently() throws Exception {
+        assertEquals(1, maxInFlight(ExecutorMode.DISPATCHER), "Диспетчер выполнял обработчики параллельно");
+        assertTrue(maxInFlight(ExecutorMode.VIRTUAL_THREADS) > 1, "Виртуальные потоки не дают параллельности");
+        assertTrue(maxInFlight(ExecutorMode.BOUNDED_POOL) > 1, "Пул потоков не даёт параллельности");
+    }
+
+    @Test
+    @DisplayName("должен отклонять пул без потоков до запуска сервера")
+    void shouldRejectEmptyPool() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(new ConcurrentTaskManager(), ExecutorMode.BOUNDED_POOL, 0));
+        assertEquals("Размер пула потоков должен быть положительным.", exception.getMessage(),
+                "Неверное сообщение об ошибке");
+    }
+
+    // Наибольшее число одновременно выполнявшихся обработчиков; медленное чтение имитирует обращение к диску
+    private static int maxInFlight(ExecutorMode mode) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ConcurrentTaskManager manager = new ConcurrentTaskManager() {
+            @Override
+            public List<Task> getTasks() {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(HANDLER_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return super.getTasks();
+            }
+        };
+        manager.createTask(new Task("Задача", "Описание"));
+        HttpTaskServer server = new HttpTaskServer(manager, mode, CLIENTS);
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient();
+             ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks"))
+                    .GET()
+                    .build();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        assertEquals(200, response.statusCode(), "Неверный код ответа");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            server.stop();
+        }
+        return maxInFlight.get();
+    }
+}
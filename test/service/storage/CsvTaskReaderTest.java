@@ -0,0 +1,99 @@
+package service.storage;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Потоковый разбор CSV")
+class CsvTaskReaderTest {
+
+    @Test
+    @DisplayName("должен разбирать все поля задачи без промежуточных строк")
+    void shouldParseAllColumns() throws IOException {
+        CsvTaskReader reader = new CsvTaskReader("7,SUBTASK,Подзадача,IN_PROGRESS,Описание,3,2024-02-07T10:15:30.125,45");
+        Task task = reader.readTask();
+
+        assertInstanceOf(SubTask.class, task, "Неверный тип задачи");
+        assertEquals(7, task.getId(), "Неверный id");
+        assertEquals(TaskType.SUBTASK, task.getType(), "Неверный тип");
+        assertEquals("Подзадача", task.getName(), "Неверное имя");
+        assertEquals(TaskStatus.IN_PROGRESS, task.getStatus(), "Неверный статус");
+        assertEquals("Описание", task.getDescription(), "Неверное описание");
+        assertEquals(3, task.getEpicId(), "Неверный id эпика");
+        assertEquals(LocalDateTime.of(2024, 2, 7, 10, 15, 30, 125_000_000), task.getStartTime(),
+                "Неверное время начала");
+        assertEquals(45, task.getDuration(), "Неверная длительность");
+        assertNull(reader.readTask(), "После последней строки не должно быть задач");
+    }
+
+    @Test
+    @DisplayName("должен сохранять запятые, кавычки и переводы строк в имени и описании")
+    void shouldRoundTripQuotedValues() {
+        Task task = new Task(1, "Имя, с запятой", TaskStatus.NEW, "Строка 1\nСтрока \"2\"",
+                LocalDateTime.of(2024, 1, 1, 11, 11), 10L);
+
+        String row = CsvSnapshotCodec.toString(task);
+        Task parsed = CsvSnapshotCodec.fromString(row);
+
+        assertEquals("1,TASK,\"Имя, с запятой\",NEW,\"Строка 1\nСтрока \"\"2\"\"\",null,2024-01-01T11:11,10,0", row,
+                "Строка не соответствует ожидаемой");
+        assertEquals(task.getName(), parsed.getName(), "Имя несоответствует");
+        assertEquals(task.getDescription(), parsed.getDescription(), "Описание несоответствует");
+        assertEquals(task.getStartTime(), parsed.getStartTime(), "Время начала несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен отличать отсутствующее описание от строки null")
+    void shouldDistinguishNullFromNullString() {
+        Task withoutDescription = CsvSnapshotCodec.fromString(
+                CsvSnapshotCodec.toString(new Task(1, "Имя", TaskStatus.NEW, null, null, 0L)));
+        Task withNullString = CsvSnapshotCodec.fromString(
+                CsvSnapshotCodec.toString(new Task(2, "Имя", TaskStatus.NEW, "null", null, 0L)));
+
+        assertNull(withoutDescription.getDescription(), "Описание должно отсутствовать");
+        assertEquals("null", withNullString.getDescription(), "Описание должно быть строкой null");
+    }
+
+    @Test
+    @DisplayName("должен читать файл из нескольких буферов вместе с историей")
+    void shouldReadSnapshotLargerThanBuffer() throws IOException {
+        File file = File.createTempFile("task", "csv");
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Epic(0, "Эпик", TaskStatus.NEW, "Описание, эпика", new ArrayList<>(), null, 0L));
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 1; i <= 20_000; i++) {
+            tasks.add(new SubTask(0, i, "Подзадача " + i, TaskStatus.DONE, "Описание\r\n" + i,
+                    basicLDT.plusMinutes(i), 1L));
+        }
+        new CsvSnapshotCodec().write(file, tasks, List.of(5, 0, 20_000));
+
+        Snapshot snapshot = new CsvSnapshotCodec().read(file);
+
+        assertEquals(tasks.size(), snapshot.tasks().size(), "Количество задач несоответствует");
+        assertEquals("Описание\r\n20000", snapshot.tasks().getLast().getDescription(), "Описание несоответствует");
+        assertEquals(basicLDT.plusMinutes(20_000), snapshot.tasks().getLast().getStartTime(),
+                "Время начала несоответствует");
+        assertEquals(List.of(5, 0, 20_000), snapshot.history(), "История несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен сообщать об ошибке формата")
+    void shouldFailOnMalformedRow() {
+        CsvTaskReader reader = new CsvTaskReader(new StringReader("1,TASK,Имя,UNKNOWN,Описание,null,null,0"));
+
+        assertThrows(IOException.class, reader::readTask, "Неизвестный статус должен приводить к исключению");
+    }
+}
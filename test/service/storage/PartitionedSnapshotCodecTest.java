@@ -0,0 +1,93 @@
+package service.storage;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.SnapshotFormat;
+import util.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Снимок из нескольких разделов")
+class PartitionedSnapshotCodecTest {
+    private File file;
+    private List<Task> tasks;
+
+    @BeforeEach
+    void init() throws IOException {
+        file = File.createTempFile("task", "csv");
+        tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new Epic(i, "Эпик " + i, TaskStatus.NEW, "Описание", new ArrayList<>(), null, 0L));
+        }
+        for (int i = 10; i < 1_000; i++) {
+            tasks.add(new SubTask(i % 10, i, "Подзадача " + i, TaskStatus.NEW, "Описание", null, 0L));
+        }
+    }
+
+    @Test
+    @DisplayName("должен записывать задачи в разделы и читать их в исходном порядке")
+    void shouldWriteAndReadPartitions() {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            SnapshotCodec codec = new PartitionedSnapshotCodec(SnapshotCodec.of(format), 7);
+            codec.write(file, tasks, List.of(3, 500));
+
+            Snapshot snapshot = codec.read(file);
+
+            for (int i = 0; i < 7; i++) {
+                assertTrue(PartitionedSnapshotCodec.partition(file, i).exists(), "Раздел " + i + " не создан");
+            }
+            assertEquals(tasks.stream().map(Task::getId).toList(),
+                    snapshot.tasks().stream().map(Task::getId).toList(), "Задачи несоответствуют: " + format);
+            assertEquals(List.of(3, 500), snapshot.history(), "История несоответствует: " + format);
+        }
+    }
+
+    @Test
+    @DisplayName("должен удалять устаревшие разделы при уменьшении их количества")
+    void shouldDeleteStalePartitions() {
+        new PartitionedSnapshotCodec(SnapshotCodec.of(SnapshotFormat.CSV), 8).write(file, tasks, List.of());
+        SnapshotCodec codec = new PartitionedSnapshotCodec(SnapshotCodec.of(SnapshotFormat.CSV), 3);
+        codec.write(file, tasks.subList(0, 20), List.of());
+
+        assertFalse(PartitionedSnapshotCodec.partition(file, 3).exists(), "Устаревший раздел не удалён");
+        assertFalse(new File(file.getPath() + ".part1-0").exists(), "Раздел прежнего поколения не удалён");
+        assertEquals(20, codec.read(file).tasks().size(), "Количество задач несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен читать опубликованное поколение, если запись следующего оборвалась")
+    void shouldIgnoreUnpublishedPartitions() {
+        SnapshotCodec codec = new PartitionedSnapshotCodec(SnapshotCodec.of(SnapshotFormat.CSV), 3);
+        codec.write(file, tasks.subList(0, 20), List.of(1));
+        // Сбой до замены манифеста: разделы следующего поколения записаны лишь частично
+        SnapshotCodec.of(SnapshotFormat.CSV).write(new File(file.getPath() + ".part2-0"), tasks.subList(0, 5),
+                List.of(4));
+
+        Snapshot snapshot = codec.read(file);
+        assertEquals(tasks.subList(0, 20).stream().map(Task::getId).toList(),
+                snapshot.tasks().stream().map(Task::getId).toList(), "Смешаны разделы разных поколений");
+        assertEquals(List.of(1), snapshot.history(), "История из неопубликованного поколения");
+
+        codec.write(file, tasks.subList(0, 10), List.of(2));
+        assertEquals(10, codec.read(file).tasks().size(), "Повторная запись поколения не удалась");
+    }
+
+    @Test
+    @DisplayName("должен читать обычный снимок без разделов")
+    void shouldReadSnapshotWithoutPartitions() {
+        SnapshotCodec.of(SnapshotFormat.CSV).write(file, tasks, List.of(7));
+
+        Snapshot snapshot = new PartitionedSnapshotCodec(SnapshotCodec.of(SnapshotFormat.CSV), 3).read(file);
+        assertEquals(tasks.size(), snapshot.tasks().size(), "Задачи снимка без разделов потеряны");
+        assertEquals(List.of(7), snapshot.history(), "История несоответствует");
+    }
+}
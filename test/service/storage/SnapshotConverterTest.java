@@ -0,0 +1,69 @@
+package service.storage;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.SnapshotFormat;
+import util.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Конвертер снимков")
+class SnapshotConverterTest {
+    private File csvFile;
+    private File binaryFile;
+    private List<Task> tasks;
+
+    @BeforeEach
+    void init() throws IOException {
+        csvFile = File.createTempFile("task", "csv");
+        binaryFile = File.createTempFile("task", "bin");
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 11, 11);
+        tasks = List.of(
+                new Task(0, "Задача", TaskStatus.DONE, "Описание задачи", basicLDT, 15L),
+                new Epic(1, "Эпик", TaskStatus.IN_PROGRESS, "Описание эпика", new ArrayList<>(), null, 0L),
+                new SubTask(1, 2, "Подзадача", TaskStatus.IN_PROGRESS, "Описание", basicLDT.plusDays(1), 60L));
+    }
+
+    @Test
+    @DisplayName("должен переводить снимок из CSV в бинарный формат и обратно без потерь")
+    void shouldConvertBetweenFormats() throws IOException {
+        new CsvSnapshotCodec().write(csvFile, tasks, List.of(2, 0), 42);
+
+        SnapshotConverter.convert(csvFile, SnapshotFormat.CSV, binaryFile, SnapshotFormat.BINARY);
+        Snapshot snapshot = new BinarySnapshotCodec().read(binaryFile);
+
+        assertEquals(3, snapshot.tasks().size(), "Количество задач несоответствует");
+        assertEquals(List.of(2, 0), snapshot.history(), "История несоответствует");
+        assertEquals(42, snapshot.sequence(), "Номер последней записи журнала несоответствует");
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(CsvSnapshotCodec.toString(tasks.get(i)), CsvSnapshotCodec.toString(snapshot.tasks().get(i)),
+                    "Задача " + i + " несоответствует");
+        }
+
+        File restoredFile = File.createTempFile("task", "csv");
+        SnapshotConverter.convert(binaryFile, SnapshotFormat.BINARY, restoredFile, SnapshotFormat.CSV);
+        assertEquals(Files.readAllLines(csvFile.toPath()), Files.readAllLines(restoredFile.toPath()),
+                "Файл после двойной конвертации несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен читать пустой бинарный снимок")
+    void shouldReadEmptyBinarySnapshot() {
+        new BinarySnapshotCodec().write(binaryFile, List.of(), List.of());
+
+        Snapshot snapshot = new BinarySnapshotCodec().read(binaryFile);
+        assertTrue(snapshot.tasks().isEmpty(), "Список задач должен быть пустым");
+        assertTrue(snapshot.history().isEmpty(), "История должна быть пустой");
+    }
+}
@@ -0,0 +1,101 @@
+package service.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Журнал операций")
+class TaskJournalTest {
+    private File file;
+    private TaskJournal journal;
+
+    @BeforeEach
+    void init() throws IOException {
+        file = File.createTempFile("task", "log");
+    }
+
+    @AfterEach
+    void end() {
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("в синхронном режиме должен сразу записывать операцию на диск")
+    void shouldWriteImmediatelyInSyncMode() throws IOException {
+        journal = new TaskJournal(file, Durability.sync());
+        journal.append("VIEW,1");
+
+        assertEquals(List.of("VIEW,1"), Files.readAllLines(file.toPath()), "Запись не попала на диск");
+    }
+
+    @Test
+    @DisplayName("при групповой записи должен сбрасывать накопленные операции по размеру группы")
+    void shouldFlushGroupWhenCommitSizeReached() throws Exception {
+        journal = new TaskJournal(file, Durability.groupCommit(60_000, 3));
+        journal.append("VIEW,1");
+        journal.append("VIEW,2");
+
+        assertEquals(0, file.length(), "Группа не должна записываться до заполнения");
+        assertEquals(2, journal.size(), "Неверное количество операций");
+
+        journal.append("VIEW,3");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (file.length() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("VIEW,1", "VIEW,2", "VIEW,3"), Files.readAllLines(file.toPath()),
+                "Группа записана неверно");
+    }
+
+    @Test
+    @DisplayName("в асинхронном режиме должен записать все операции при закрытии")
+    void shouldWriteAllPendingRecordsOnClose() throws IOException {
+        journal = new TaskJournal(file, Durability.async());
+        for (int i = 0; i < 1000; i++) {
+            journal.append("VIEW," + i);
+        }
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        new TaskJournal(file).replay(replayed::add);
+        assertEquals(1000, replayed.size(), "Не все операции записаны");
+        assertEquals("VIEW,999", replayed.getLast(), "Неверный порядок операций");
+    }
+
+    @Test
+    @DisplayName("при очистке должен отбрасывать ещё не записанные операции")
+    void shouldDropPendingRecordsOnReset() throws IOException {
+        journal = new TaskJournal(file, Durability.groupCommit(60_000, 100));
+        journal.append("VIEW,1");
+        journal.reset();
+        journal.close();
+
+        assertEquals(0, journal.size(), "Счётчик операций не сброшен");
+        assertTrue(Files.readAllLines(file.toPath()).isEmpty(), "Журнал не очищен");
+    }
+
+    @Test
+    @DisplayName("должен обрезать оборванную последнюю запись, чтобы новые записи не склеивались с ней")
+    void shouldTruncateTornTailOnReplay() throws IOException {
+        Files.writeString(file.toPath(), "VIEW,1\nPUT,2,\"Обор\nVI");
+        journal = new TaskJournal(file);
+        List<String> replayed = new ArrayList<>();
+        journal.replay(replayed::add);
+        assertEquals(List.of("VIEW,1"), replayed, "Оборванная запись не отброшена");
+
+        journal.append("VIEW,3");
+        journal.close();
+        List<String> reloaded = new ArrayList<>();
+        new TaskJournal(file).replay(reloaded::add);
+        assertEquals(List.of("VIEW,1", "VIEW,3"), reloaded, "Новая запись склеилась с оборванной");
+    }
+}
@@ -0,0 +1,139 @@
+package service.task;
+
+import exception.NotFoundException;
+import exception.ValidationException;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.StringStorage;
+import util.TaskStatus;
+import util.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Менеджер задач (столбцовое хранилище)")
+class ColumnarTaskManagerTest {
+    private ColumnarTaskManager taskManager;
+
+    @BeforeEach
+    void init() {
+        taskManager = new ColumnarTaskManager();
+    }
+
+    @Test
+    @DisplayName("должен собирать задачи, эпики и подзадачи из столбцов без потери полей")
+    void shouldMaterializeAllTaskTypes() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 2, 7, 10, 15, 30, 125_000_000);
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание эпика"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", null, basicLDT, 45L));
+
+        Task loadedTask = taskManager.getTaskById(task.getId());
+        assertEquals("Задача", loadedTask.getName(), "Неверное имя");
+        assertNull(loadedTask.getStartTime(), "Время начала не задавалось");
+        assertFalse(loadedTask.hasDuration(), "Длительность не задавалась");
+
+        SubTask loadedSubTask = taskManager.getSubTaskById(subTask.getId());
+        assertEquals(epic.getId(), loadedSubTask.getEpicId(), "Неверный эпик");
+        assertNull(loadedSubTask.getDescription(), "Описание не задавалось");
+        assertEquals(basicLDT, loadedSubTask.getStartTime(), "Неверное время начала");
+        assertEquals(45, loadedSubTask.getDuration(), "Неверная длительность");
+
+        Epic loadedEpic = taskManager.getEpicById(epic.getId());
+        assertEquals(List.of(subTask.getId()), loadedEpic.getSubTaskIds().toList(), "Неверные подзадачи эпика");
+        assertEquals(basicLDT, loadedEpic.getStartTime(), "Неверное начало эпика");
+        assertEquals(basicLDT.plusMinutes(45), loadedEpic.getEndTime(), "Неверное окончание эпика");
+        assertEquals(List.of(task.getId(), subTask.getId(), epic.getId()),
+                taskManager.getHistory().stream().map(Task::getId).toList(), "Неверная история");
+    }
+
+    @Test
+    @DisplayName("должен пересчитывать эпик по столбцам подзадач")
+    void shouldAggregateEpicFromColumns() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        SubTask first = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача1", "Описание",
+                basicLDT, 30L));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача2", "Описание",
+                basicLDT.plusHours(2), 60L));
+
+        first.setStatus(TaskStatus.DONE);
+        taskManager.updateSubTask(first);
+        Epic loadedEpic = taskManager.getEpicById(epic.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, loadedEpic.getStatus(), "Неверный статус эпика");
+        assertEquals(basicLDT, loadedEpic.getStartTime(), "Неверное начало эпика");
+        assertEquals(basicLDT.plusHours(3), loadedEpic.getEndTime(), "Неверное окончание эпика");
+        assertEquals(90, loadedEpic.getDuration(), "Неверная длительность эпика");
+
+        taskManager.removeSubTaskById(first.getId() + 1);
+        assertEquals(TaskStatus.DONE, taskManager.getEpicById(epic.getId()).getStatus(),
+                "Статус эпика не пересчитан после удаления");
+        taskManager.removeEpicById(epic.getId());
+        assertTrue(taskManager.getSubTasks().isEmpty(), "Подзадачи удалённого эпика остались");
+        assertThrows(NotFoundException.class, () -> taskManager.getEpicById(epic.getId()));
+    }
+
+    @Test
+    @DisplayName("должен фильтровать и агрегировать задачи по статусу и времени после удалений")
+    void shouldScanColumnsAfterRemovals() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            TaskStatus status = i % 2 == 0 ? TaskStatus.NEW : TaskStatus.DONE;
+            taskManager.createTask(new Task(0, "Задача " + i, status, "Описание", basicLDT.plusHours(i), 30L));
+        }
+        for (int i = 0; i < 100; i += 10) {
+            taskManager.removeTaskById(i);
+        }
+
+        Map<TaskStatus, Integer> counts = taskManager.countByStatus(TaskType.TASK);
+        assertEquals(40, counts.get(TaskStatus.NEW), "Неверное количество новых задач");
+        assertEquals(50, counts.get(TaskStatus.DONE), "Неверное количество выполненных задач");
+        assertEquals(90 * 30, taskManager.getTotalDuration(TaskType.TASK), "Неверная суммарная длительность");
+
+        List<Integer> found = taskManager.findTasks(TaskStatus.NEW, basicLDT.plusHours(10), basicLDT.plusHours(20))
+                .stream().map(Task::getId).sorted().toList();
+        assertEquals(List.of(12, 14, 16, 18), found, "Неверный результат фильтра");
+        assertEquals(90, taskManager.getTasks().size(), "Неверное количество задач");
+        assertThrows(NotFoundException.class, () -> taskManager.getTaskById(50));
+    }
+
+    @Test
+    @DisplayName("не должен давать менять сохранённые задачи через выданные экземпляры")
+    void shouldReturnDetachedCopies() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = taskManager.createTask(new Task("Задача", "Описание", basicLDT, 60L));
+        taskManager.getTaskById(task.getId()).setName("Изменено");
+
+        assertEquals("Задача", taskManager.getTaskById(task.getId()).getName(), "Сохранённая задача изменилась");
+        assertThrows(ValidationException.class, () -> taskManager.createTask(
+                new Task("Пересечение", "Описание", basicLDT.plusMinutes(30), 60L)));
+        assertEquals(List.of(task.getId()), taskManager.getPrioritizedTasks().stream().map(Task::getId).toList(),
+                "Неверный список по приоритету");
+    }
+
+    @Test
+    @DisplayName("должен хранить имена и описания вне кучи и переписывать таблицу строк после удалений")
+    void shouldKeepStringsOffHeap() {
+        ColumnarTaskManager offHeapManager = new ColumnarTaskManager(StringStorage.OFF_HEAP);
+        String description = "Описание задачи ".repeat(100);
+        for (int i = 0; i < 2_000; i++) {
+            offHeapManager.createTask(new Task("Задача " + i, description + i));
+        }
+        for (int i = 0; i < 2_000; i += 2) {
+            offHeapManager.removeTaskById(i);
+        }
+        Task task = offHeapManager.createTask(new Task("Новая", null));
+
+        assertEquals(1_001, offHeapManager.getTasks().size(), "Неверное количество задач");
+        assertEquals("Задача 1", offHeapManager.getTaskById(1).getName(), "Неверное имя");
+        assertEquals(description + 1999, offHeapManager.getTaskById(1999).getDescription(), "Неверное описание");
+        assertNull(offHeapManager.getTaskById(task.getId()).getDescription(), "Описание не задавалось");
+    }
+}
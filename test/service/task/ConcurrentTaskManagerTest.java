@@ -0,0 +1,233 @@
+package service.task;
+
+import exception.NotFoundException;
+import exception.ValidationException;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Потокобезопасный менеджер задач")
+class ConcurrentTaskManagerTest {
+    private static final int THREADS = 8;
+    private ConcurrentTaskManager taskManager;
+
+    @BeforeEach
+    void init() {
+        taskManager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    @DisplayName("должен выдавать уникальные id и не терять задачи при параллельном создании")
+    void shouldCreateTasksConcurrently() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        taskManager.createTask(new Task("Задача", "Описание"));
+                        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+                        assertFalse(taskManager.getTasks().contains(null), "Список задач несогласован");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        taskManager.getTasks().forEach(task -> ids.add(task.getId()));
+        taskManager.getSubTasks().forEach(subTask -> ids.add(subTask.getId()));
+        assertEquals(THREADS * 1000, ids.size(), "Повторяющиеся или потерянные id");
+        assertEquals(THREADS * 500, taskManager.getEpicById(epic.getId()).getSubTaskIds().size(),
+                "Подзадачи эпика потеряны");
+    }
+
+    @Test
+    @DisplayName("должен допускать только одну из параллельно создаваемых пересекающихся задач")
+    void shouldKeepScheduleConsistent() throws Exception {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        AtomicInteger rejected = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int slot = 0; slot < 100; slot++) {
+                        try {
+                            taskManager.createTask(new Task("Задача", "Описание",
+                                    basicLDT.plusHours(slot).plusMinutes(offset), 30L));
+                        } catch (ValidationException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        assertEquals(100, prioritized.size(), "В каждом часе должна остаться одна задача");
+        assertEquals(THREADS * 100 - 100, rejected.get(), "Неверное количество отклонённых задач");
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertFalse(prioritized.get(i).getStartTime().isBefore(prioritized.get(i - 1).getEndTime()),
+                    "Задачи в расписании пересекаются");
+        }
+    }
+
+    @Test
+    @DisplayName("должен выдавать согласованные снимки во время параллельных изменений")
+    void shouldProvideConsistentSnapshots() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS / 2; thread++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+                        for (int j = 0; j < 3; j++) {
+                            taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+                        }
+                        taskManager.removeEpicById(epic.getId());
+                    }
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS / 2; thread++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        TaskSnapshot snapshot = taskManager.snapshot();
+                        for (Epic epic : snapshot.getEpics()) {
+                            List<SubTask> subTasks = snapshot.getEpicSubTasks(epic.getId());
+                            assertEquals(epic.getSubTaskIds().size(), subTasks.size(), "Подзадачи эпика из другой версии");
+                            subTasks.forEach(subTask -> assertEquals(epic.getId(), subTask.getEpicId(),
+                                    "Подзадача чужого эпика"));
+                        }
+                    }
+                }));
+            }
+            try {
+                for (Future<?> future : writers) {
+                    future.get();
+                }
+            } finally {
+                writing.set(false);
+            }
+            for (Future<?> future : readers) {
+                future.get();
+            }
+        }
+        assertTrue(taskManager.snapshot().getSubTasks().isEmpty(), "Подзадачи удалённых эпиков остались");
+    }
+
+    @Test
+    @DisplayName("должен выдавать копии, которые не меняются параллельными записями")
+    void shouldReturnDetachedCopies() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        Epic read = taskManager.getEpicById(epic.getId());
+        read.setName("Изменено");
+        assertEquals("Эпик", taskManager.getEpicById(epic.getId()).getName(), "Выдан экземпляр менеджера");
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+                }
+            });
+            while (!writer.isDone()) {
+                Epic copy = taskManager.getEpics().getFirst();
+                int size = copy.getSubTaskIds().size();
+                assertEquals(size, copy.getSubTaskIds().toList().size(), "Копия изменилась во время чтения");
+            }
+            writer.get();
+        }
+        assertTrue(read.getSubTaskIds().isEmpty(), "Ранее выданная копия изменилась");
+    }
+
+    @Test
+    @DisplayName("должен обновлять снимок при записи и выдавать его без пересборки при чтении")
+    void shouldPublishSnapshotOnWrite() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        TaskSnapshot before = taskManager.snapshot();
+        assertSame(before, taskManager.snapshot(), "Снимок пересобран без записи");
+
+        task.setName("Изменено");
+        taskManager.updateTask(task);
+        Task created = taskManager.createTask(new Task("Новая", "Описание"));
+        TaskSnapshot after = taskManager.snapshot();
+        assertNotSame(before, after, "Снимок не обновлён записью");
+        assertEquals("Изменено", after.getTaskById(task.getId()).getName(), "Изменение не попало в снимок");
+        assertEquals(2, after.getTasks().size(), "Новая задача не попала в снимок");
+        assertEquals("Задача", before.getTaskById(task.getId()).getName(), "Прежний снимок изменился");
+        assertThrows(NotFoundException.class, () -> before.getTaskById(created.getId()),
+                "Новая задача попала в прежний снимок");
+    }
+
+    @Test
+    @DisplayName("должен менять хранимый эпик, а не переданную копию")
+    void shouldUpdateStoredEpicThroughCopies() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача 1", "Описание",
+                LocalDateTime.of(2024, 1, 1, 10, 0), 30L));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача 2", "Описание"));
+
+        Epic copy = taskManager.getEpics().getFirst();
+        copy.setStatus(TaskStatus.DONE);
+        taskManager.calculateEpicStatus(copy);
+        assertEquals(TaskStatus.NEW, copy.getStatus(), "Статус копии не пересчитан");
+
+        for (Epic current : taskManager.getEpics()) {
+            taskManager.deleteAllSubTasks(current);
+        }
+        Epic stored = taskManager.getEpicById(epic.getId());
+        assertTrue(stored.getSubTaskIds().isEmpty(), "Подзадачи остались в хранимом эпике");
+        assertNull(stored.getStartTime(), "Время эпика не сброшено");
+        assertEquals(0, stored.getDuration(), "Длительность эпика не сброшена");
+
+        SubTask created = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача 3", "Описание"));
+        assertEquals(List.of(created.getId()), taskManager.getEpicById(epic.getId()).getSubTaskIds().toList(),
+                "Удалённые подзадачи вернулись в эпик");
+
+        copy = taskManager.getEpics().getFirst();
+        copy.setStartTime(LocalDateTime.of(2024, 1, 1, 10, 0));
+        taskManager.calculateEpicTimes(copy);
+        assertNull(copy.getStartTime(), "Время копии не пересчитано");
+    }
+
+    @Test
+    @DisplayName("должен читать подзадачи эпика из снимка и записывать просмотр хранимого эпика")
+    void shouldReadEpicSubTasksFromSnapshot() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+
+        assertEquals(List.of(subTask.getId()),
+                taskManager.getEpicSubTasks(epic.getId()).stream().map(Task::getId).toList(),
+                "Подзадачи не совпадают");
+        epic.setName("Изменено");
+        taskManager.updateEpic(epic);
+        assertEquals("Изменено", taskManager.getHistory().getFirst().getName(),
+                "В историю записан не хранимый эпик");
+        assertThrows(NotFoundException.class, () -> taskManager.getEpicSubTasks(subTask.getId()),
+                "Подзадача не должна считаться эпиком");
+    }
+}
@@ -1,16 +1,27 @@
 package service.task;
 
 import model.Epic;
+import model.ScheduleRequest;
 import model.SubTask;
 import model.Task;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import service.storage.CompactionStats;
+import service.storage.Durability;
+import service.storage.PartitionedSnapshotCodec;
+import service.storage.SnapshotCodec;
+import util.PersistenceMode;
+import util.SnapshotFormat;
+import util.TaskStatus;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,7 +54,7 @@ class FileBackedTaskManagerTest {
         taskManager.createTask(new Task("Новая задача", "Описание первой задачи."));
         BufferedReader br = new BufferedReader(new FileReader(file));
         br.readLine();
-        assertEquals("0,TASK,Новая задача,NEW,Описание первой задачи.,null,null,0", br.readLine(),
+        assertEquals("0,TASK,Новая задача,NEW,Описание первой задачи.,null,null,0,1", br.readLine(),
                 "Строка не соответствует ожидаемой");
     }
 
@@ -58,13 +69,13 @@ class FileBackedTaskManagerTest {
         BufferedReader br = new BufferedReader(new FileReader(file));
         assertEquals("id,type,name,status,description,epicId", br.readLine(),
                 "Строка 0 не соответствует ожидаемой");
-        assertEquals("0,TASK,Новая задача 1,NEW,Описание 1 задачи.,null,null,0", br.readLine(),
+        assertEquals("0,TASK,Новая задача 1,NEW,Описание 1 задачи.,null,null,0,1", br.readLine(),
                 "Строка 1 не соответствует ожидаемой");
-        assertEquals("1,TASK,Новая задача 2,NEW,Описание 2 задачи.,null,null,0", br.readLine(),
+        assertEquals("1,TASK,Новая задача 2,NEW,Описание 2 задачи.,null,null,0,1", br.readLine(),
                 "Строка 2 не соответствует ожидаемой");
-        assertEquals("2,TASK,Новая задача 3,NEW,Описание 3 задачи.,null,null,0", br.readLine(),
+        assertEquals("2,TASK,Новая задача 3,NEW,Описание 3 задачи.,null,null,0,1", br.readLine(),
                 "Строка 3 не соответствует ожидаемой");
-        assertEquals("3,TASK,Новая задача 4,NEW,Описание 4 задачи.,null,null,0", br.readLine(),
+        assertEquals("3,TASK,Новая задача 4,NEW,Описание 4 задачи.,null,null,0,1", br.readLine(),
                 "Строка 4 не соответствует ожидаемой");
         assertNull(br.readLine(), "Строка 5 не соответствует ожидаемой");
     }
@@ -80,6 +91,7 @@ class FileBackedTaskManagerTest {
         taskManager.getTaskById(1);
         taskManager.getTaskById(0);
         taskManager.getTaskById(2);
+        taskManager.removeTaskById(3);
 
         BufferedReader br = new BufferedReader(new FileReader(file));
 
@@ -87,10 +99,46 @@ class FileBackedTaskManagerTest {
         br.readLine();
         br.readLine();
         br.readLine();
-        br.readLine();
-        assertEquals("", br.readLine(), "Строка 5 не соответствует ожидаемой");
+        assertEquals("", br.readLine(), "Строка 4 не соответствует ожидаемой");
         assertEquals("1,0,2", br.readLine(),
-                "Строка 6 не соответствует ожидаемой");
+                "Строка 5 не соответствует ожидаемой");
+    }
+
+    @Test
+    @DisplayName("при чтении задач не должен переписывать файл, а дописывать историю в отдельный файл")
+    void shouldNotRewriteFileOnRead() throws IOException {
+        taskManager.createTask(new Task("Новая задача 1", "Описание 1 задачи."));
+        taskManager.createTask(new Task("Новая задача 2", "Описание 2 задачи."));
+        List<String> snapshot = Files.readAllLines(file.toPath());
+
+        taskManager.getTaskById(1);
+        taskManager.getTaskById(0);
+        // Просмотры пишутся группами в фоне, закрытие сбрасывает их на диск
+        taskManager.close();
+
+        assertEquals(snapshot, Files.readAllLines(file.toPath()), "Файл не должен меняться при чтении");
+        assertEquals(List.of("1,VIEW,1", "2,VIEW,0"), Files.readAllLines(taskManager.getHistoryFile().toPath()),
+                "Файл истории не соответствует ожидаемому");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(1, 0), loadedManager.getHistory().stream().map(Task::getId).toList(),
+                "История несоответствует");
+    }
+
+    @Test
+    @DisplayName("при одних чтениях должен переписывать разросшийся файл истории текущей историей")
+    void shouldRewriteHistoryFileOnReadOnlyTraffic() throws IOException {
+        taskManager.createTask(new Task("Новая задача 1", "Описание 1 задачи."));
+        taskManager.createTask(new Task("Новая задача 2", "Описание 2 задачи."));
+        for (int i = 0; i < 5000; i++) {
+            taskManager.getTaskById(i % 2);
+        }
+
+        assertTrue(Files.readAllLines(taskManager.getHistoryFile().toPath()).size() <= 1002,
+                "Файл истории растёт без ограничений");
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(0, 1), loadedManager.getHistory().stream().map(Task::getId).toList(),
+                "История несоответствует");
     }
 
     @Test
@@ -121,6 +169,7 @@ class FileBackedTaskManagerTest {
         taskManager.getTaskById(1);
         taskManager.getTaskById(0);
         taskManager.getTaskById(2);
+        taskManager.close();
 
         try {
             FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
@@ -157,4 +206,308 @@ class FileBackedTaskManagerTest {
             fail("Не удалось загрузить файл. Ошибка: " + e);
         }
     }
+
+    @Test
+    @DisplayName("в режиме журнала должен дописывать операции в журнал, не переписывая файл")
+    void shouldAppendOperationsToJournal() throws IOException {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaledManager.createTask(new Task("Новая задача 1", "Описание 1 задачи."));
+        journaledManager.createTask(new Task("Новая задача 2", "Описание 2 задачи."));
+        journaledManager.getTaskById(1);
+        journaledManager.removeTaskById(0);
+        journaledManager.close();
+
+        List<String> records = Files.readAllLines(journaledManager.getJournalFile().toPath());
+        assertEquals(0, file.length(), "Файл снимка не должен переписываться");
+        assertEquals(List.of(
+                "1,PUT,0,TASK,Новая задача 1,NEW,Описание 1 задачи.,null,null,0,1",
+                "2,PUT,1,TASK,Новая задача 2,NEW,Описание 2 задачи.,null,null,0,1",
+                "4,REMOVE,0"), records, "Журнал не соответствует ожидаемому");
+        assertEquals(List.of("3,VIEW,1"), Files.readAllLines(journaledManager.getHistoryFile().toPath()),
+                "Файл истории не соответствует ожидаемому");
+    }
+
+    @Test
+    @DisplayName("в режиме журнала должен восстанавливать состояние из снимка и журнала")
+    void shouldRestoreStateFromSnapshotAndJournal() {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, 5);
+        journaledManager.createTask(new Task("Новая задача 1", "Описание 1 задачи."));
+        Epic epic = journaledManager.createEpic(new Epic("Test epic", "Test description"));
+        SubTask subTask = journaledManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        journaledManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        journaledManager.getEpicById(epic.getId());
+        journaledManager.removeSubTaskById(subTask.getId());
+        journaledManager.createTask(new Task("Новая задача 2", "Описание 2 задачи."));
+        journaledManager.getTaskById(0);
+        journaledManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(2, loadedManager.getTasks().size(), "Количество задач несоответствует");
+        assertEquals(1, loadedManager.getEpics().size(), "Количество эпиков несоответствует");
+        assertEquals(1, loadedManager.getSubTasks().size(), "Количество подзадач несоответствует");
+        assertEquals(1, loadedManager.getEpicById(epic.getId()).getSubTaskIds().size(),
+                "Количество подзадач эпика несоответствует");
+        assertEquals(List.of(0, 1), loadedManager.getHistory().stream().map(Task::getId).toList(),
+                "История несоответствует");
+        assertEquals(5, loadedManager.createTask(new Task("Задача", "Описание")).getId(),
+                "Неверный следующий идентификатор");
+    }
+
+    @Test
+    @DisplayName("в режиме журнала должен периодически делать снимок и очищать журнал")
+    void shouldMakeSnapshotAndResetJournal() throws IOException {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, 3);
+        journaledManager.createTask(new Task("Новая задача 1", "Описание 1 задачи."));
+        journaledManager.createTask(new Task("Новая задача 2", "Описание 2 задачи."));
+        journaledManager.createTask(new Task("Новая задача 3", "Описание 3 задачи."));
+        journaledManager.createTask(new Task("Новая задача 4", "Описание 4 задачи."));
+        journaledManager.close();
+
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        br.readLine();
+        assertEquals("0,TASK,Новая задача 1,NEW,Описание 1 задачи.,null,null,0,1", br.readLine(),
+                "Строка не соответствует ожидаемой");
+        assertEquals(List.of("4,PUT,3,TASK,Новая задача 4,NEW,Описание 4 задачи.,null,null,0,1"),
+                Files.readAllLines(journaledManager.getJournalFile().toPath()), "Журнал не был очищен");
+    }
+
+    @Test
+    @DisplayName("должен корректно применять журнал, уже вошедший в снимок")
+    void shouldReplayJournalIdempotently() throws IOException {
+        Epic epic = taskManager.createEpic(new Epic("Test epic", "Test description"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        taskManager.createTask(new Task("Новая задача", "Описание задачи."));
+        taskManager.removeTaskById(2);
+
+        Files.write(new File(file.getPath() + ".log").toPath(), List.of(
+                "PUT,0,EPIC,Test epic,NEW,Test description,null,null,0",
+                "PUT,1,SUBTASK,Подзадача,NEW,Описание,0,null,0",
+                "PUT,2,TASK,Новая задача,NEW,Описание задачи.,null,null,0",
+                "REMOVE,2"));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(0, loadedManager.getTasks().size(), "Количество задач несоответствует");
+        assertEquals(1, loadedManager.getSubTasks().size(), "Количество подзадач несоответствует");
+        assertEquals(List.of(1), loadedManager.getEpics().getFirst().getSubTaskIds().toList(),
+                "Подзадачи эпика не должны дублироваться");
+    }
+
+    @Test
+    @DisplayName("должен пропускать подзадачи эпика, удалённого в уже записанном снимке")
+    void shouldSkipSubTasksOfRemovedEpicOnReplay() throws IOException {
+        Epic epic = taskManager.createEpic(new Epic("Test epic", "Test description"));
+        taskManager.removeEpicById(epic.getId());
+
+        Files.write(new File(file.getPath() + ".log").toPath(), List.of(
+                "PUT,1,SUBTASK,Подзадача,NEW,Описание,0,null,0",
+                "REMOVE,0"));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertTrue(loadedManager.getEpics().isEmpty(), "Удалённый эпик восстановился");
+        assertTrue(loadedManager.getSubTasks().isEmpty(), "Подзадача удалённого эпика восстановилась");
+        assertEquals(2, loadedManager.createTask(new Task("Задача", "Описание")).getId(),
+                "Счётчик id не учёл пропущенную запись");
+    }
+
+    @Test
+    @DisplayName("при групповой записи должен сохранять все операции после закрытия менеджера")
+    void shouldPersistAllOperationsWithGroupCommit() {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL,
+                Durability.groupCommit(50, 16));
+        for (int i = 0; i < 100; i++) {
+            journaledManager.createTask(new Task("Задача " + i, "Описание"));
+        }
+        journaledManager.getTaskById(42);
+        journaledManager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(100, loadedManager.getTasks().size(), "Количество задач несоответствует");
+        assertEquals(List.of(42), loadedManager.getHistory().stream().map(Task::getId).toList(),
+                "История несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен сохранять и восстанавливать задачи в бинарном формате")
+    void shouldSaveAndLoadBinarySnapshot() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 2, 7, 10, 15, 30);
+        FileBackedTaskManager binaryManager = new FileBackedTaskManager(file, SnapshotFormat.BINARY);
+        binaryManager.createTask(new Task("Новая задача", null, basicLDT, 30L));
+        Epic epic = binaryManager.createEpic(new Epic("Эпик", "Описание эпика"));
+        binaryManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание", basicLDT.plusHours(1), 45L));
+        binaryManager.getEpicById(epic.getId());
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, SnapshotFormat.BINARY);
+        Task task = loadedManager.getTaskById(0);
+        assertEquals("Новая задача", task.getName(), "Имя задачи несоответствует");
+        assertNull(task.getDescription(), "Описание задачи несоответствует");
+        assertEquals(basicLDT, task.getStartTime(), "Время начала задачи несоответствует");
+        assertEquals(30, task.getDuration(), "Длительность задачи несоответствует");
+        assertEquals(basicLDT.plusHours(1), loadedManager.getEpicById(epic.getId()).getStartTime(),
+                "Время начала эпика несоответствует");
+        assertEquals(2, loadedManager.getPrioritizedTasks().size(), "Неверная длина списка по приоритету");
+        assertEquals(List.of(0, 1), loadedManager.getHistory().stream().map(Task::getId).toList(),
+                "История несоответствует");
+        assertEquals(binaryManager.getEpicById(epic.getId()).getVersion(),
+                loadedManager.getEpicById(epic.getId()).getVersion(), "Версия эпика не сохранилась");
+    }
+
+    @Test
+    @DisplayName("в режиме журнала должен восстанавливать имена и описания с запятыми и переводами строк")
+    void shouldRestoreQuotedValuesFromJournal() {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaledManager.createTask(new Task("Имя, с запятой", "Строка 1\nСтрока \"2\""));
+        journaledManager.createTask(new Task("Вторая задача", "Описание"));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(2, loadedManager.getTasks().size(), "Количество задач несоответствует");
+        assertEquals("Имя, с запятой", loadedManager.getTaskById(0).getName(), "Имя несоответствует");
+        assertEquals("Строка 1\nСтрока \"2\"", loadedManager.getTaskById(0).getDescription(),
+                "Описание несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен восстанавливать задачи из нескольких разделов")
+    void shouldRestoreFromPartitionedSnapshot() {
+        SnapshotCodec codec = new PartitionedSnapshotCodec(SnapshotCodec.of(SnapshotFormat.BINARY), 4);
+        FileBackedTaskManager partitionedManager = new FileBackedTaskManager(file, codec);
+        for (int i = 0; i < 5; i++) {
+            Epic epic = partitionedManager.createEpic(new Epic("Эпик " + i, "Описание"));
+            for (int j = 0; j < 5; j++) {
+                partitionedManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+            }
+        }
+        partitionedManager.createTask(new Task("Задача", "Описание"));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, codec);
+        assertEquals(1, loadedManager.getTasks().size(), "Количество задач несоответствует");
+        assertEquals(5, loadedManager.getEpics().size(), "Количество эпиков несоответствует");
+        assertEquals(25, loadedManager.getSubTasks().size(), "Количество подзадач несоответствует");
+        assertEquals(5, loadedManager.getEpicById(24).getSubTaskIds().size(),
+                "Количество подзадач эпика несоответствует");
+    }
+
+    @Test
+    @DisplayName("должен сжимать журнал в фоне, удалять сегменты и вести статистику")
+    void shouldCompactJournalInBackground() {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, 10);
+        for (int i = 0; i < 25; i++) {
+            journaledManager.createTask(new Task("Задача " + i, "Описание"));
+        }
+        journaledManager.getTaskById(3);
+        journaledManager.close();
+
+        CompactionStats stats = journaledManager.getCompactionStats();
+        assertFalse(stats.running(), "Сжатие должно быть завершено");
+        assertEquals(2, stats.compactions(), "Неверное количество сжатий");
+        assertEquals(0, stats.failures(), "Сжатие не должно завершаться ошибкой");
+        assertEquals(20, stats.lastTaskCount(), "Неверное количество задач в снимке");
+        assertFalse(new File(file.getPath() + ".log.1").exists(), "Сегмент журнала должен быть удалён");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(25, loadedManager.getTasks().size(), "Количество задач несоответствует");
+        assertEquals(List.of(3), loadedManager.getHistory().stream().map(Task::getId).toList(),
+                "История несоответствует");
+    }
+
+    @Test
+    @DisplayName("после сбоя во время сжатия должен восстановить состояние из сегмента и журнала")
+    void shouldRecoverFromCrashDuringCompaction() throws IOException {
+        Files.write(new File(file.getPath() + ".log.1").toPath(), List.of(
+                "PUT,0,TASK,Задача 1,NEW,Описание,null,null,0",
+                "PUT,1,TASK,Задача 2,NEW,Описание,null,null,0"));
+        Files.writeString(new File(file.getPath() + ".log").toPath(),
+                "REMOVE,0\nPUT,2,TASK,Задача 3,NEW,Описание,null,null,0\nPUT,3,TASK,Оборванная");
+        Files.writeString(new File(file.getPath() + ".tmp").toPath(), "id,type,name,status,description,epicId\n0,TA");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+
+        assertEquals(List.of(1, 2), loadedManager.getTasks().stream().map(Task::getId).toList(),
+                "Задачи несоответствуют");
+        assertFalse(new File(file.getPath() + ".log.1").exists(), "Сегмент должен быть свёрнут в снимок");
+        assertEquals(2, FileBackedTaskManager.loadFromFile(file).getTasks().size(),
+                "Снимок должен содержать восстановленное состояние");
+
+        loadedManager.createTask(new Task("Задача 4", "Описание"));
+        loadedManager.close();
+        assertEquals(3, FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL).getTasks().size(),
+                "Запись после восстановления склеилась с оборванной");
+    }
+
+    @Test
+    @DisplayName("после сбоя между заменой снимка и удалением сегмента не должен применять свёрнутые записи")
+    void shouldSkipFoldedSegmentAfterCrash() throws IOException {
+        FileBackedTaskManager journaledManager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Epic epic = journaledManager.createEpic(new Epic("Эпик", "Описание"));
+        journaledManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        Task task = journaledManager.createTask(new Task("Задача", "Описание"));
+        journaledManager.removeEpicById(epic.getId());
+        journaledManager.getTaskById(task.getId());
+        journaledManager.close();
+        List<String> folded = Files.readAllLines(journaledManager.getJournalFile().toPath());
+        List<String> foldedViews = Files.readAllLines(journaledManager.getHistoryFile().toPath());
+
+        journaledManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertTrue(journaledManager.compact(), "Сжатие не запущено");
+        journaledManager.close();
+        // Снимок уже заменён, а сегменты остались на диске
+        Files.write(new File(file.getPath() + ".log.1").toPath(), folded);
+        Files.write(new File(file.getPath() + ".history.1").toPath(), foldedViews);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertTrue(loadedManager.getEpics().isEmpty(), "Удалённый эпик восстановился");
+        assertTrue(loadedManager.getSubTasks().isEmpty(), "Подзадача удалённого эпика восстановилась");
+        assertEquals(1, loadedManager.getTaskById(task.getId()).getVersion(), "Свёрнутая запись применена повторно");
+        assertFalse(new File(file.getPath() + ".log.1").exists(), "Сегмент должен быть свёрнут в снимок");
+
+        loadedManager.createTask(new Task("Новая задача", "Описание"));
+        loadedManager.close();
+        assertEquals(2, FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL).getTasks().size(),
+                "Запись после восстановления пропущена");
+    }
+
+    @Test
+    @DisplayName("в режиме журнала должен сохранять план расписания одним пакетом")
+    void shouldPersistSchedulePlanAsBatch() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Task task = manager.createTask(new Task("Задача", "Описание", null, 30L));
+        SubTask subTask = manager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание", null, 45L));
+        manager.scheduleTasks(List.of(new ScheduleRequest(task.getId()), new ScheduleRequest(subTask.getId())),
+                basicLDT);
+        manager.close();
+
+        assertEquals(5, Files.readAllLines(manager.getJournalFile().toPath()).size(),
+                "План должен занимать по записи на задачу");
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(basicLDT, loadedManager.getTaskById(task.getId()).getStartTime(),
+                "Время задачи не восстановилось");
+        assertEquals(basicLDT.plusMinutes(75), loadedManager.getEpicById(epic.getId()).getEndTime(),
+                "Время эпика не восстановилось");
+        loadedManager.close();
+    }
+
+    @Test
+    @DisplayName("должен сохранять версии задач в снимке и журнале")
+    void shouldPersistVersions() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, PersistenceMode.JOURNAL, 5);
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+        manager.updateTask(new Task(task.getId(), "Задача", TaskStatus.IN_PROGRESS, "Описание", null, null));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Epic other = manager.createEpic(new Epic("Другой эпик", "Описание"));
+        SubTask subTask = manager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание", null, 30L));
+        manager.updateSubTask(new SubTask(other.getId(), subTask.getId(), "Подзадача", TaskStatus.DONE,
+                "Описание", null, 30L));
+        manager.scheduleTasks(List.of(new ScheduleRequest(subTask.getId())), basicLDT);
+        manager.removeTaskById(manager.createTask(new Task("Удалённая", "Описание")).getId());
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        for (int id : List.of(task.getId(), epic.getId(), other.getId(), subTask.getId())) {
+            assertEquals(manager.snapshot().find(id).getVersion(), loadedManager.snapshot().find(id).getVersion(),
+                    "Версия задачи " + id + " не сохранилась");
+        }
+        loadedManager.close();
+    }
 }
@@ -2,7 +2,9 @@ package service.task;
 
 import exception.NotFoundException;
 import exception.ValidationException;
+import exception.VersionConflictException;
 import model.Epic;
+import model.ScheduleRequest;
 import model.SubTask;
 import model.Task;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,7 +16,7 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -106,6 +108,22 @@ class InMemoryTaskManagerTest {
         assertEquals(subTask, subTaskList.getFirst(), "Подзадачи не совпадают.");
     }
 
+    @Test
+    @DisplayName("должен возвращать подзадачи эпика по id и записывать просмотр эпика")
+    void shouldReturnEpicSubTasksById() {
+        Epic epic = taskManager.createEpic(new Epic("Test epic", "Test description"));
+        SubTask subTask = taskManager
+                .createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+
+        assertEquals(List.of(subTask.getId()),
+                taskManager.getEpicSubTasks(epic.getId()).stream().map(Task::getId).toList(),
+                "Подзадачи не совпадают.");
+        assertEquals(List.of(epic.getId()), taskManager.getHistory().stream().map(Task::getId).toList(),
+                "Просмотр эпика не попал в историю.");
+        assertThrows(NotFoundException.class, () -> taskManager.getEpicSubTasks(subTask.getId()),
+                "Подзадача не должна считаться эпиком.");
+    }
+
     @Test
     @DisplayName("не должен создать подзадачу с подзадачей в виде эпика")
     void shouldNotCreateSubtaskWithSubtaskAsEpic() {
@@ -148,7 +166,7 @@ class InMemoryTaskManagerTest {
         Epic savedEpic = taskManager.getEpicById(epic.getId());
 
         Epic editEpic = new Epic(savedEpic.getId(), savedEpic.getName(), savedEpic.getStatus(),
-                savedEpic.getDescription(), new ArrayList<>(savedEpic.getSubTaskIds()), savedEpic.getStartTime(),
+                savedEpic.getDescription(), savedEpic.getSubTaskIds().toList(), savedEpic.getStartTime(),
                 savedEpic.getDuration());
         editEpic.setStatus(TaskStatus.IN_PROGRESS);
         editEpic.setName("New name");
@@ -335,6 +353,207 @@ class InMemoryTaskManagerTest {
         }, "Создание задачи с пересечением должно приводить к исключению");
     }
 
+    @Test
+    @DisplayName("должен разрешать обновление задачи в её прежнем интервале и задачи без времени")
+    void shouldAllowUpdateWithinOwnSlotAndTasksWithoutTime() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 11, 0);
+        Task task = taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+        taskManager.createTask(new Task("Задача2", "Описание", basicLDT.plusMinutes(60), 60L));
+
+        assertDoesNotThrow(() -> taskManager.createTask(new Task("Задача3", "Описание")),
+                "Задача без времени должна создаваться");
+        Task updatedTask = new Task(task.getId(), "Задача1", TaskStatus.IN_PROGRESS, "Описание",
+                basicLDT.minusMinutes(30), 60L);
+        assertDoesNotThrow(() -> taskManager.updateTask(updatedTask), "Обновление в своём интервале отклонено");
+        assertEquals(2, taskManager.getPrioritizedTasks().size(), "Прежний интервал задачи не удалён");
+        assertEquals(updatedTask, taskManager.getPrioritizedTasks().getFirst(), "Неверный первый элемент списка");
+
+        assertThrows(ValidationException.class, () -> taskManager.updateTask(new Task(task.getId(), "Задача1",
+                TaskStatus.NEW, "Описание", basicLDT.plusMinutes(59), 10L)), "Пересечение со следующей задачей");
+        assertThrows(ValidationException.class, () -> taskManager.createTask(new Task("Задача4", "Описание",
+                basicLDT.plusMinutes(119), 10L)), "Пересечение с предыдущей задачей");
+        assertDoesNotThrow(() -> taskManager.createTask(new Task("Задача5", "Описание",
+                basicLDT.plusMinutes(120), 10L)), "Смежная задача отклонена");
+    }
+
+    @Test
+    @DisplayName("должен освобождать время подзадач при удалении эпика")
+    void shouldFreeSubTaskSlotsWhenEpicRemoved() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 11, 0);
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание", basicLDT, 60L));
+        taskManager.removeEpicById(epic.getId());
+
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "Подзадача осталась в списке");
+        assertDoesNotThrow(() -> taskManager.createTask(new Task("Задача", "Описание", basicLDT, 60L)),
+                "Время удалённой подзадачи не освободилось");
+    }
+
+    @Test
+    @DisplayName("должен возвращать задачи и подзадачи, пересекающие период")
+    void shouldReturnTasksOverlappingWindow() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        Task task1 = taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание",
+                basicLDT.plusHours(2), 60L));
+        taskManager.createTask(new Task("Задача2", "Описание", basicLDT.plusHours(4), 60L));
+        taskManager.createTask(new Task("Задача3", "Описание"));
+
+        assertEquals(List.of(task1, subTask), taskManager.getPrioritizedTasks(basicLDT.plusMinutes(59),
+                basicLDT.plusHours(4)), "Неверный список задач в периоде");
+        assertEquals(List.of(subTask), taskManager.getPrioritizedTasks(basicLDT.plusHours(1),
+                basicLDT.plusHours(3)), "Задача, закончившаяся к началу периода, попала в список");
+        assertTrue(taskManager.getPrioritizedTasks(basicLDT.plusHours(5), basicLDT.plusHours(6)).isEmpty(),
+                "Список задач в пустом периоде не пуст");
+        assertThrows(ValidationException.class, () -> taskManager.getPrioritizedTasks(basicLDT, basicLDT),
+                "Пустой период должен отклоняться");
+    }
+
+    @Test
+    @DisplayName("должен находить самое раннее свободное время заданной длительности")
+    void shouldFindEarliestFreeSlot() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task1 = taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+        taskManager.createTask(new Task("Задача2", "Описание", basicLDT.plusMinutes(90), 60L));
+        taskManager.createTask(new Task("Задача3", "Описание", basicLDT.plusMinutes(180), 60L));
+
+        assertEquals(basicLDT.minusMinutes(30), taskManager.findFreeSlot(30, basicLDT.minusMinutes(30), null),
+                "Свободное время до первой задачи не найдено");
+        assertEquals(basicLDT.plusMinutes(60), taskManager.findFreeSlot(30, basicLDT.plusMinutes(10), null),
+                "Неверный промежуток между задачами");
+        assertEquals(basicLDT.plusMinutes(150), taskManager.findFreeSlot(30, basicLDT.plusMinutes(70), null),
+                "Промежуток должен начинаться не раньше указанного времени");
+        assertEquals(basicLDT.plusMinutes(240), taskManager.findFreeSlot(40, basicLDT, null),
+                "Свободное время после последней задачи не найдено");
+        assertThrows(NotFoundException.class, () -> taskManager.findFreeSlot(40, basicLDT,
+                basicLDT.plusMinutes(270)), "Время после before не должно возвращаться");
+
+        taskManager.removeTaskById(task1.getId());
+        assertEquals(basicLDT, taskManager.findFreeSlot(90, basicLDT, null),
+                "Промежуток удалённой задачи не освободился");
+    }
+
+    @Test
+    @DisplayName("должен находить свободное время среди большого числа задач")
+    void shouldFindFreeSlotAmongManyTasks() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 100_000; i++) {
+            taskManager.createTask(new Task("Задача", "Описание", basicLDT.plusMinutes(i * 20L), 15L));
+        }
+        Task task = taskManager.getPrioritizedTasks().getLast();
+        taskManager.updateTask(new Task(task.getId(), "Задача", TaskStatus.NEW, "Описание",
+                basicLDT.minusDays(1), 15L));
+
+        assertEquals(basicLDT.plusMinutes(99_999 * 20L - 5), taskManager.findFreeSlot(25, basicLDT, null),
+                "Неверный промежуток на месте перенесённой задачи");
+        assertEquals(basicLDT.plusMinutes(15), taskManager.findFreeSlot(5, basicLDT, null),
+                "Неверный первый промежуток");
+    }
+
+    @Test
+    @DisplayName("должен размещать задачи без времени в свободные промежутки с учётом сроков и приоритетов")
+    void shouldScheduleTasksIntoFreeSlots() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        taskManager.createTask(new Task("Занято", "Описание", basicLDT.plusMinutes(30), 60L));
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        Task longTask = taskManager.createTask(new Task("Длинная", "Описание", null, 90L));
+        Task urgentTask = taskManager.createTask(new Task("Срочная", "Описание", null, 30L));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание", null, 20L));
+
+        List<Task> scheduled = taskManager.scheduleTasks(List.of(
+                new ScheduleRequest(longTask.getId()),
+                new ScheduleRequest(subTask.getId(), 5, null),
+                new ScheduleRequest(urgentTask.getId(), 0, basicLDT.plusMinutes(30))), basicLDT);
+
+        assertEquals(List.of(urgentTask, subTask, longTask), scheduled, "Неверный порядок размещения");
+        assertEquals(basicLDT, urgentTask.getStartTime(), "Срочная задача должна занять первый промежуток");
+        assertEquals(basicLDT.plusMinutes(90), subTask.getStartTime(), "Неверное время подзадачи");
+        assertEquals(basicLDT.plusMinutes(110), longTask.getStartTime(), "Неверное время длинной задачи");
+        assertEquals(subTask.getEndTime(), epic.getEndTime(), "Время эпика не пересчитано");
+        assertEquals(4, taskManager.getPrioritizedTasks().size(), "Запланированные задачи не в списке");
+    }
+
+    @Test
+    @DisplayName("должен откатывать весь план, если задача не помещается до своего срока")
+    void shouldRollbackScheduleWhenDeadlineMissed() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        taskManager.createTask(new Task("Занято", "Описание", basicLDT.plusMinutes(30), 60L));
+        Task task1 = taskManager.createTask(new Task("Задача1", "Описание", null, 30L));
+        Task task2 = taskManager.createTask(new Task("Задача2", "Описание", null, 30L));
+
+        assertThrows(ValidationException.class, () -> taskManager.scheduleTasks(List.of(
+                new ScheduleRequest(task1.getId(), 0, basicLDT.plusMinutes(30)),
+                new ScheduleRequest(task2.getId(), 0, basicLDT.plusMinutes(60))), basicLDT),
+                "Задача, не успевающая к сроку, должна приводить к исключению");
+        assertNull(task1.getStartTime(), "Время первой задачи не откатилось");
+        assertEquals(1, taskManager.getPrioritizedTasks().size(), "Список задач изменился");
+        assertEquals(basicLDT, taskManager.findFreeSlot(30, basicLDT, null), "Промежуток не освободился");
+    }
+
+    @Test
+    @DisplayName("должен возвращать неизменяемый список по приоритету, пересобираемый только после изменений")
+    void shouldReturnImmutablePrioritizedSnapshot() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task1 = taskManager.createTask(new Task("Задача1", "Описание", basicLDT, 60L));
+        List<Task> snapshot = taskManager.getPrioritizedTasks();
+
+        assertSame(snapshot, taskManager.getPrioritizedTasks(), "Список пересобран без изменений расписания");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(task1),
+                "Список по приоритету должен быть неизменяемым");
+
+        Task task2 = taskManager.createTask(new Task("Задача2", "Описание", basicLDT.minusHours(2), 60L));
+        assertEquals(List.of(task1), snapshot, "Прежний снимок изменился");
+        assertEquals(List.of(task2, task1), taskManager.getPrioritizedTasks(), "Новый снимок неверен");
+    }
+
+    @Test
+    @DisplayName("приращения статуса и времени эпика должны совпадать с полным пересчётом")
+    void shouldKeepEpicAggregatesEqualToFullRecalculation() {
+        Random random = new Random(42);
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 0, 0);
+        TaskStatus[] statuses = TaskStatus.values();
+        List<Epic> epics = List.of(taskManager.createEpic(new Epic("Эпик1", "Описание")),
+                taskManager.createEpic(new Epic("Эпик2", "Описание")));
+        List<SubTask> subTasks = new ArrayList<>();
+        int slot = 0;
+
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime startTime = random.nextInt(4) == 0 ? null : basicLDT.plusHours(slot++);
+            long duration = random.nextInt(60);
+            Epic epic = epics.get(random.nextInt(epics.size()));
+            int operation = subTasks.isEmpty() ? 0 : random.nextInt(3);
+            if (operation == 0) {
+                SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание",
+                        startTime, duration));
+                subTask.setStatus(statuses[random.nextInt(statuses.length)]);
+                taskManager.updateSubTask(subTask);
+                subTasks.add(subTask);
+            } else if (operation == 1) {
+                SubTask previous = subTasks.remove(random.nextInt(subTasks.size()));
+                SubTask subTask = new SubTask(epic.getId(), previous.getId(), "Подзадача",
+                        statuses[random.nextInt(statuses.length)], "Описание", startTime, duration);
+                taskManager.updateSubTask(subTask);
+                subTasks.add(subTask);
+            } else {
+                taskManager.removeSubTaskById(subTasks.remove(random.nextInt(subTasks.size())).getId());
+            }
+
+            for (Epic checkedEpic : epics) {
+                TaskStatus status = checkedEpic.getStatus();
+                LocalDateTime epicStart = checkedEpic.getStartTime();
+                LocalDateTime epicEnd = checkedEpic.getEndTime();
+                long epicDuration = checkedEpic.getDuration();
+                taskManager.calculateEpicStatus(checkedEpic);
+                taskManager.calculateEpicTimes(checkedEpic);
+                assertEquals(checkedEpic.getStatus(), status, "Статус эпика расходится на шаге " + i);
+                assertEquals(checkedEpic.getStartTime(), epicStart, "Начало эпика расходится на шаге " + i);
+                assertEquals(checkedEpic.getEndTime(), epicEnd, "Окончание эпика расходится на шаге " + i);
+                assertEquals(checkedEpic.getDuration(), epicDuration, "Длительность эпика расходится на шаге " + i);
+            }
+        }
+    }
+
     @Test
     @DisplayName("должен верно рассчитывать статус эпика")
     void shouldCalculateEpicStatus() {
@@ -378,11 +597,93 @@ class InMemoryTaskManagerTest {
             Task task4 = taskManager.createTask(new Task("Задача4", "Описание", basicLDT.minusMinutes(100), 100L));
             taskManager.createTask(new Task("Задача5", "Описание", basicLDT.minusMinutes(99), 100L));
 
-            TreeSet<Task> tasks = taskManager.getPrioritizedTasks();
+            List<Task> tasks = taskManager.getPrioritizedTasks();
 
             assertEquals(3, tasks.size(), "Неверная длина списка");
             assertEquals(task4, tasks.getFirst(), "Неверный первый элемент списка");
             assertEquals(task3, tasks.getLast(), "Неверный последний элемент списка");
         }, "Создание задачи с пересечением должно приводить к исключению");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("при массовом восстановлении должен пересчитывать эпики один раз в конце")
+    void shouldCalculateEpicsOnceAfterBulkRestore() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 0, 0);
+        manager.restoreEpic(new Epic(0, "Эпик", TaskStatus.NEW, "Описание", new ArrayList<>(), null, 0L));
+        manager.restoreEpic(new Epic(1, "Эпик", TaskStatus.NEW, "Описание", new ArrayList<>(), null, 0L));
+
+        manager.beginBulkRestore();
+        for (int i = 2; i < 10_002; i++) {
+            manager.restoreSubTask(new SubTask(0, i, "Подзадача", TaskStatus.DONE, "Описание",
+                    basicLDT.plusMinutes(i * 10L), 5L));
+        }
+        manager.restoreSubTask(new SubTask(1, 10_002, "Подзадача", TaskStatus.NEW, "Описание", null, 0L));
+        manager.restoreSubTask(new SubTask(1, 10_003, "Подзадача", TaskStatus.DONE, "Описание", null, 0L));
+
+        Epic epic = manager.getEpicById(0);
+        assertNull(epic.getStartTime(), "Эпик не должен пересчитываться до окончания восстановления");
+
+        manager.finishBulkRestore();
+
+        assertEquals(TaskStatus.DONE, epic.getStatus(), "Неверный статус эпика");
+        assertEquals(basicLDT.plusMinutes(20), epic.getStartTime(), "Неверное время начала эпика");
+        assertEquals(basicLDT.plusMinutes(100_015), epic.getEndTime(), "Неверное время окончания эпика");
+        assertEquals(50_000, epic.getDuration(), "Неверная длительность эпика");
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpicById(1).getStatus(), "Неверный статус второго эпика");
+    }
+
+    @Test
+    @DisplayName("должен сохранять в снимке состояние на момент его создания")
+    void shouldKeepSnapshotUnchanged() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание", basicLDT, 30L));
+        TaskSnapshot snapshot = taskManager.snapshot();
+        Epic pinnedEpic = snapshot.getEpicById(epic.getId());
+
+        taskManager.removeSubTaskById(subTask.getId());
+        taskManager.createTask(new Task("Задача", "Описание", basicLDT, 30L));
+
+        assertEquals(List.of(subTask.getId()),
+                snapshot.getEpicSubTasks(epic.getId()).stream().map(Task::getId).toList(),
+                "Снимок изменился вместе с менеджером");
+        assertEquals(List.of(subTask.getId()), snapshot.getPrioritizedTasks().stream().map(Task::getId).toList(),
+                "Расписание снимка изменилось");
+        assertTrue(snapshot.getTasks().isEmpty(), "В снимок попала новая задача");
+        assertTrue(taskManager.getEpicSubTasks(pinnedEpic).isEmpty(), "Удалённые подзадачи должны пропускаться");
+
+        TaskSnapshot next = taskManager.snapshot();
+        assertSame(next, taskManager.snapshot(), "Без изменений должен выдаваться тот же снимок");
+        assertTrue(next.getEpicSubTasks(epic.getId()).isEmpty(), "Удаление подзадачи не попало в снимок");
+        assertEquals(TaskStatus.NEW, next.getEpicById(epic.getId()).getStatus(), "Эпик в снимке не обновлён");
+        assertEquals(1, next.getPrioritizedTasks().size(), "Расписание снимка не обновлено");
+        assertNotSame(snapshot.find(epic.getId()), next.find(epic.getId()), "Изменённый эпик не скопирован заново");
+
+        taskManager.createEpic(new Epic("Эпик 2", "Описание"));
+        assertSame(next.find(epic.getId()), taskManager.snapshot().find(epic.getId()),
+                "Неизменённый эпик должен быть общим для версий снимка");
+    }
+
+    @Test
+    @DisplayName("должен увеличивать версию при изменениях и отклонять запись по устаревшей версии")
+    void shouldRejectUpdateWithStaleVersion() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        assertEquals(1, task.getVersion(), "Новая задача должна получать версию 1");
+
+        Task first = new Task(task.getId(), "Первое изменение", TaskStatus.IN_PROGRESS, "Описание", null, null);
+        first.setVersion(1);
+        taskManager.updateTask(first);
+        assertEquals(2, first.getVersion(), "Версия не увеличилась");
+
+        Task stale = new Task(task.getId(), "Второе изменение", TaskStatus.DONE, "Описание", null, null);
+        stale.setVersion(1);
+        assertThrows(VersionConflictException.class, () -> taskManager.updateTask(stale));
+        assertEquals("Первое изменение", taskManager.getTaskById(task.getId()).getName(), "Изменение потеряно");
+
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        assertEquals(2, taskManager.getEpicById(epic.getId()).getVersion(),
+                "Пересчёт эпика должен давать новую версию");
+    }
+}
@@ -0,0 +1,234 @@
+package service.task;
+
+import exception.NotFoundException;
+import exception.ValidationException;
+import exception.VersionConflictException;
+import model.Epic;
+import model.ScheduleRequest;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.storage.KeyValueStore;
+import util.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Менеджер задач (хранилище ключ-значение)")
+class KeyValueTaskManagerTest {
+    private KeyValueTaskManager taskManager;
+    private File file;
+
+    @BeforeEach
+    void init() throws IOException {
+        file = File.createTempFile("task", "db");
+        taskManager = new KeyValueTaskManager(file);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        taskManager.close();
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(taskManager.getHistoryFile().toPath());
+    }
+
+    @Test
+    @DisplayName("должен восстанавливать задачи, эпики, подзадачи и историю после перезапуска")
+    void shouldRestoreAllTaskTypesAfterReopen() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание, с запятой",
+                LocalDateTime.of(2024, 1, 1, 10, 0), 30L));
+        Epic epic = taskManager.createEpic(new Epic("Эпик", null));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 11, 0), 45L));
+        subTask.setStatus(TaskStatus.DONE);
+        taskManager.updateSubTask(subTask);
+        taskManager.getTaskById(task.getId());
+        taskManager.getEpicById(epic.getId());
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        assertEquals("Описание, с запятой", taskManager.getTasks().getFirst().getDescription(),
+                "Описание задачи не восстановилось");
+        Epic loadedEpic = taskManager.getEpics().getFirst();
+        assertNull(loadedEpic.getDescription(), "Пустое описание эпика не восстановилось");
+        assertEquals(List.of(subTask.getId()), loadedEpic.getSubTaskIds().toList(), "Подзадачи эпика не восстановились");
+        assertEquals(TaskStatus.DONE, loadedEpic.getStatus(), "Статус эпика не восстановился");
+        assertEquals(subTask.getEndTime(), loadedEpic.getEndTime(), "Время окончания эпика не восстановилось");
+        assertEquals(List.of(task.getId(), epic.getId()),
+                taskManager.getHistory().stream().map(Task::getId).toList(), "История не восстановилась");
+        assertEquals(2, taskManager.getPrioritizedTasks().size(), "Расписание не восстановилось");
+        assertEquals(subTask.getId() + 1, taskManager.createTask(new Task("Новая", "Описание")).getId(),
+                "Счётчик id не восстановился");
+    }
+
+    @Test
+    @DisplayName("должен удалять эпик вместе с подзадачами и не восстанавливать их после перезапуска")
+    void shouldRemoveEpicWithSubTasks() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 11, 0), 45L));
+        taskManager.getSubTaskById(subTask.getId());
+        taskManager.removeEpicById(epic.getId());
+
+        assertTrue(taskManager.getHistory().isEmpty(), "Подзадача осталась в истории");
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "Подзадача осталась в расписании");
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        assertTrue(taskManager.getEpics().isEmpty(), "Эпик восстановился после удаления");
+        assertThrows(NotFoundException.class, () -> taskManager.getSubTaskById(subTask.getId()),
+                "Подзадача восстановилась после удаления");
+    }
+
+    @Test
+    @DisplayName("должен отклонять пересечение по времени, но разрешать обновление задачи в своём же интервале")
+    void shouldCheckIntersectionAgainstNeighbours() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 10, 0), 60L));
+        taskManager.createTask(new Task("Без времени", "Описание"));
+
+        assertThrows(ValidationException.class, () -> taskManager.createTask(new Task("Задача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 10, 30), 60L)), "Пересечение с предыдущей задачей не найдено");
+        assertThrows(ValidationException.class, () -> taskManager.createTask(new Task("Задача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 9, 30), 60L)), "Пересечение со следующей задачей не найдено");
+        assertDoesNotThrow(() -> taskManager.createTask(new Task("Задача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 11, 0), 60L)), "Смежная задача отклонена");
+
+        task.setStartTime(LocalDateTime.of(2024, 1, 1, 9, 30));
+        assertDoesNotThrow(() -> taskManager.updateTask(task), "Обновление в своём интервале отклонено");
+        assertEquals(LocalDateTime.of(2024, 1, 1, 9, 30),
+                taskManager.getPrioritizedTasks().getFirst().getStartTime(), "Расписание не обновилось");
+    }
+
+    @Test
+    @DisplayName("должен восстановить связь подзадачи с эпиком после сбоя между записями")
+    void shouldRepairEpicAfterTornUpdate() throws IOException {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        taskManager.close();
+        // Последняя запись (эпик с новой подзадачей) оборвана, подзадача уже на диске
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 1);
+        }
+
+        taskManager = new KeyValueTaskManager(file);
+        assertEquals(1, taskManager.getEpicSubTasks(taskManager.getEpics().getFirst()).size(),
+                "Подзадача не вернулась в эпик");
+    }
+
+    @Test
+    @DisplayName("должен сжимать хранилище, сохраняя только актуальные записи")
+    void shouldCompactStore() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        for (int i = 0; i < 100; i++) {
+            task.setName("Задача " + i);
+            taskManager.updateTask(task);
+        }
+        try (KeyValueStore store = new KeyValueStore(file)) {
+            long before = store.fileSize();
+            store.compact();
+            assertTrue(store.fileSize() < before / 10, "Файл хранилища не уменьшился");
+            assertEquals(1, store.size(), "Количество ключей изменилось");
+        }
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        assertEquals("Задача 99", taskManager.getTasks().getFirst().getName(), "Задача не сохранилась после сжатия");
+    }
+
+    @Test
+    @DisplayName("должен сжимать хранилище в фоне, не теряя записей, сделанных во время сжатия")
+    void shouldCompactStoreInBackground() {
+        Task task = taskManager.createTask(new Task("Задача", "x".repeat(10_000)));
+        for (int i = 0; i < 300; i++) {
+            task.setName("Задача " + i);
+            taskManager.updateTask(task);
+            taskManager.createTask(new Task("Новая " + i, "Описание"));
+        }
+        taskManager.close();
+        assertTrue(file.length() < 2 << 20, "Хранилище не сжато");
+
+        taskManager = new KeyValueTaskManager(file);
+        assertEquals("Задача 299", taskManager.getTaskById(task.getId()).getName(), "Потеряно последнее изменение");
+        assertEquals(301, taskManager.getTasks().size(), "Потеряны задачи, созданные во время сжатия");
+    }
+
+    @Test
+    @DisplayName("должен сохранять план расписания и не планировать задачу дважды")
+    void shouldPersistSchedulePlan() {
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = taskManager.createTask(new Task("Задача", "Описание", null, 30L));
+        assertThrows(ValidationException.class, () -> taskManager.scheduleTasks(List.of(
+                new ScheduleRequest(task.getId()), new ScheduleRequest(task.getId())), basicLDT),
+                "Повторная задача в плане должна приводить к исключению");
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "План не откатился");
+
+        taskManager.scheduleTasks(List.of(new ScheduleRequest(task.getId())), basicLDT);
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        assertEquals(basicLDT, taskManager.getPrioritizedTasks().getFirst().getStartTime(),
+                "Время задачи не сохранилось");
+    }
+
+    @Test
+    @DisplayName("должен сохранять версии задач после перезапуска")
+    void shouldKeepVersionsAfterReopen() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        task.setStatus(TaskStatus.DONE);
+        taskManager.updateTask(task);
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        Task loaded = taskManager.getTaskById(task.getId());
+        assertEquals(2, loaded.getVersion(), "Версия не восстановилась");
+        loaded.setVersion(1);
+        assertThrows(VersionConflictException.class, () -> taskManager.updateTask(loaded));
+    }
+
+    @Test
+    @DisplayName("не должен выдумывать длительность задаче без неё после перезапуска")
+    void shouldKeepMissingDurationAfterReopen() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        assertFalse(taskManager.getTaskById(task.getId()).hasDuration(), "Появилась нулевая длительность");
+    }
+
+    @Test
+    @DisplayName("должен пересчитывать эпики при переносе и удалении подзадач и сохранять их состав")
+    void shouldKeepEpicAggregatesOnSubTaskChanges() {
+        Epic first = taskManager.createEpic(new Epic("Эпик 1", "Описание"));
+        Epic second = taskManager.createEpic(new Epic("Эпик 2", "Описание"));
+        SubTask done = taskManager.createSubTask(new SubTask(first.getId(), "Подзадача 1", "Описание",
+                LocalDateTime.of(2024, 1, 1, 10, 0), 30L));
+        SubTask moved = taskManager.createSubTask(new SubTask(first.getId(), "Подзадача 2", "Описание",
+                LocalDateTime.of(2024, 1, 1, 11, 0), 60L));
+        SubTask removed = taskManager.createSubTask(new SubTask(first.getId(), "Подзадача 3", "Описание"));
+        done.setStatus(TaskStatus.DONE);
+        taskManager.updateSubTask(done);
+        moved.setEpicId(second.getId());
+        taskManager.updateSubTask(moved);
+        taskManager.removeSubTaskById(removed.getId());
+        taskManager.close();
+
+        taskManager = new KeyValueTaskManager(file);
+        Epic loadedFirst = taskManager.getEpicById(first.getId());
+        Epic loadedSecond = taskManager.getEpicById(second.getId());
+        assertEquals(List.of(done.getId()), loadedFirst.getSubTaskIds().toList(), "Состав эпика не сохранился");
+        assertEquals(TaskStatus.DONE, loadedFirst.getStatus(), "Статус эпика не пересчитан");
+        assertEquals(30, loadedFirst.getDuration(), "Длительность эпика не пересчитана");
+        assertEquals(List.of(moved.getId()), loadedSecond.getSubTaskIds().toList(), "Подзадача не перенесена");
+        assertEquals(moved.getEndTime(), loadedSecond.getEndTime(), "Время эпика не пересчитано");
+    }
+}
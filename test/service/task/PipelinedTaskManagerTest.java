@@ -0,0 +1,202 @@
+package service.task;
+
+import exception.NotFoundException;
+import exception.ValidationException;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import util.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Менеджер задач с одним потоком-писателем")
+class PipelinedTaskManagerTest {
+    private static final int THREADS = 8;
+    private PipelinedTaskManager taskManager;
+
+    @BeforeEach
+    void init() {
+        taskManager = new PipelinedTaskManager();
+    }
+
+    @AfterEach
+    void close() {
+        taskManager.close();
+    }
+
+    @Test
+    @DisplayName("должен показывать изменения сразу после их завершения и выдавать отдельные копии")
+    void shouldPublishStateAfterEachCommand() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 10, 0), 30L));
+        subTask.setStatus(TaskStatus.DONE);
+        assertEquals(TaskStatus.NEW, taskManager.getSubTaskById(subTask.getId()).getStatus(),
+                "Изменение переданного объекта попало в менеджер");
+
+        taskManager.updateSubTask(subTask);
+        Epic stored = taskManager.getEpicById(epic.getId());
+        assertEquals(TaskStatus.DONE, stored.getStatus(), "Статус эпика не пересчитан");
+        assertEquals(subTask.getEndTime(), stored.getEndTime(), "Время эпика не пересчитано");
+        assertEquals(List.of(subTask.getId()), stored.getSubTaskIds().toList(), "Подзадача не привязана");
+
+        stored.setName("Изменено");
+        assertEquals("Эпик", taskManager.getEpicById(epic.getId()).getName(),
+                "Выданная копия связана с опубликованным состоянием");
+        assertEquals(1, taskManager.getPrioritizedTasks().size(), "Подзадача не попала в расписание");
+        assertEquals(List.of(subTask.getId(), epic.getId()),
+                taskManager.getHistory().stream().map(Task::getId).toList(), "Неверная история");
+    }
+
+    @Test
+    @DisplayName("должен передавать исключения команд вызывающему потоку")
+    void shouldPropagateCommandFailures() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        taskManager.createTask(new Task("Задача", "Описание", start, 60L));
+        assertThrows(ValidationException.class,
+                () -> taskManager.createTask(new Task("Задача", "Описание", start.plusMinutes(30), 60L)));
+        assertThrows(NotFoundException.class, () -> taskManager.removeEpicById(42));
+        assertThrows(NotFoundException.class, () -> taskManager.getTaskById(42));
+
+        CompletableFuture<Integer> size = taskManager.submit(manager -> manager.getTasks().size());
+        assertEquals(1, size.join(), "Команда не выполнена после неудачных");
+    }
+
+    @Test
+    @DisplayName("не должен останавливать писателя из-за Error в команде")
+    void shouldSurviveErrorsInCommands() {
+        CompletableFuture<Object> failed = taskManager.submit(manager -> {
+            throw new StackOverflowError("Ошибка команды");
+        });
+        CompletionException exception = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(StackOverflowError.class, exception.getCause(), "Ошибка команды потеряна");
+
+        taskManager.createTask(new Task("Задача", "Описание"));
+        assertEquals(1, taskManager.getTasks().size(), "Писатель остановился после ошибки");
+    }
+
+    @Test
+    @DisplayName("должен возвращать результат применённой команды, даже если снимок не удалось опубликовать")
+    void shouldCompleteCommandsWhenPublishFails() {
+        AtomicBoolean broken = new AtomicBoolean();
+        Task task = new Task("Задача", "Описание") {
+            @Override
+            public String getDescription() {
+                if (broken.get()) {
+                    throw new IllegalStateException("Снимок не собран");
+                }
+                return super.getDescription();
+            }
+        };
+        int id = taskManager.submit(manager -> {
+            Task created = manager.createTask(task);
+            broken.set(true);
+            return created.getId();
+        }).join();
+        assertTrue(taskManager.getTasks().isEmpty(), "Опубликован снимок, который не удалось собрать");
+
+        broken.set(false);
+        taskManager.submit(manager -> null).join();
+        assertEquals(List.of(id), taskManager.getTasks().stream().map(Task::getId).toList(),
+                "Применённая команда не попала в следующий снимок");
+    }
+
+    @Test
+    @DisplayName("должен применять параллельные изменения без потерь и пересечений")
+    void shouldApplyConcurrentCommands() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        LocalDateTime basicLDT = LocalDateTime.of(2024, 1, 1, 10, 0);
+        AtomicInteger rejected = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int slot = 0; slot < 100; slot++) {
+                        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+                        try {
+                            taskManager.createTask(new Task("Задача", "Описание",
+                                    basicLDT.plusHours(slot).plusMinutes(offset), 30L));
+                        } catch (ValidationException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        taskManager.getSubTasks().forEach(subTask -> ids.add(subTask.getId()));
+        assertEquals(THREADS * 100, ids.size(), "Повторяющиеся или потерянные id");
+        assertEquals(THREADS * 100, taskManager.getEpicSubTasks(taskManager.getEpicById(epic.getId())).size(),
+                "Подзадачи эпика потеряны");
+        assertEquals(100, taskManager.getTasks().size(), "В каждом часе должна остаться одна задача");
+        assertEquals(THREADS * 100 - 100, rejected.get(), "Неверное количество отклонённых задач");
+    }
+
+    @Test
+    @DisplayName("должен пересчитывать эпик писателем и копировать результат в переданный объект")
+    void shouldCalculateEpicByIdAndCopyResult() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание",
+                LocalDateTime.of(2024, 1, 1, 10, 0), 30L));
+        subTask.setStatus(TaskStatus.DONE);
+        taskManager.updateSubTask(subTask);
+
+        Epic stale = new Epic(epic.getId(), "Эпик", TaskStatus.NEW, "Описание", List.of(), null, null);
+        taskManager.calculateEpicStatus(stale);
+        taskManager.calculateEpicTimes(stale);
+        assertEquals(TaskStatus.DONE, stale.getStatus(), "Статус не скопирован");
+        assertEquals(subTask.getEndTime(), stale.getEndTime(), "Время не скопировано");
+        assertTrue(stale.getSubTaskIds().isEmpty(), "Писатель изменил переданный объект");
+        assertThrows(NotFoundException.class, () -> taskManager.calculateEpicStatus(
+                new Epic(42, "Эпик", TaskStatus.NEW, "Описание", List.of(), null, null)));
+    }
+
+    @Test
+    @DisplayName("должен отклонять команды после закрытия")
+    void shouldRejectCommandsAfterClose() {
+        taskManager.close();
+        assertThrows(IllegalStateException.class, () -> taskManager.createEpic(new Epic("Эпик", "Описание")));
+    }
+
+    @Test
+    @DisplayName("должен отдавать закреплённый снимок без ожидания писателя")
+    void shouldServePinnedSnapshot() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Подзадача", "Описание"));
+        TaskSnapshot snapshot = taskManager.snapshot();
+        assertSame(snapshot, taskManager.snapshot(), "Без изменений должен выдаваться тот же снимок");
+
+        CompletableFuture<Void> blocked = new CompletableFuture<>();
+        taskManager.submit(manager -> blocked.join());
+        taskManager.submit(manager -> {
+            manager.deleteAllEpics();
+            return null;
+        });
+
+        assertEquals(1, snapshot.getEpicSubTasks(epic.getId()).size(), "Снимок изменился");
+        assertEquals(1, taskManager.getEpics().size(), "Чтение ждало занятого писателя");
+        blocked.complete(null);
+    }
+}
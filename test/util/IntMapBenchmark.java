@@ -0,0 +1,67 @@
+package util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+// Сравнение с HashMap на миллионе ключей: занимаемая структурой память и скорость чтения.
+// Замеры зависят от сборщика мусора и машины, поэтому запускаются вручную, а не вместе с тестами
+public class IntMapBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    public static void main(String[] args) {
+        Object value = new Object();
+        Measurement hashMap = measure(size -> {
+            Map<Integer, Object> map = new HashMap<>();
+            for (int key = 0; key < size; key++) {
+                map.put(key * 7, value);
+            }
+            return map;
+        }, (structure, key) -> ((Map<?, ?>) structure).get(key) != null);
+        Measurement intMap = measure(size -> {
+            IntMap<Object> map = new IntMap<>();
+            for (int key = 0; key < size; key++) {
+                map.put(key * 7, value);
+            }
+            return map;
+        }, (structure, key) -> ((IntMap<?>) structure).get(key) != null);
+
+        System.out.printf("HashMap: %d байт, %d мс; IntMap: %d байт, %d мс%n",
+                hashMap.bytes(), hashMap.millis(), intMap.bytes(), intMap.millis());
+    }
+
+    private static Measurement measure(IntFunction<Object> fill, Lookup lookup) {
+        long before = usedMemory();
+        Object structure = fill.apply(SIZE);
+        long bytes = usedMemory() - before;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < SIZE; key++) {
+                if (lookup.contains(structure, key * 7)) {
+                    found++;
+                }
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (found != 5 * SIZE) {
+            throw new IllegalStateException("Найдены не все ключи: " + found);
+        }
+        return new Measurement(bytes, millis);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface Lookup {
+        boolean contains(Object structure, int key);
+    }
+
+    private record Measurement(long bytes, long millis) {
+    }
+}
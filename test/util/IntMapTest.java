@@ -0,0 +1,39 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Отображение int -> объект")
+class IntMapTest {
+
+    @Test
+    @DisplayName("должно совпадать с LinkedHashMap при случайных операциях")
+    void shouldMatchLinkedHashMap() {
+        Random random = new Random(11);
+        IntMap<String> map = new IntMap<>();
+        Map<Integer, String> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(1_000) - 500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), "Расхождение при удалении " + key);
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value), "Расхождение при записи " + key);
+            }
+        }
+        assertEquals(expected.size(), map.size(), "Неверный размер");
+        assertEquals(new ArrayList<>(expected.values()), map.values(), "Нарушен порядок значений");
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), map.keys(),
+                "Нарушен порядок ключей");
+        for (int key = -500; key < 500; key++) {
+            assertEquals(expected.get(key), map.get(key), "Неверное значение для " + key);
+        }
+    }
+}
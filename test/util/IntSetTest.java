@@ -0,0 +1,57 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Множество int с порядком добавления")
+class IntSetTest {
+
+    @Test
+    @DisplayName("должно хранить элементы без повторов в порядке добавления")
+    void shouldKeepInsertionOrder() {
+        IntSet set = new IntSet();
+        assertTrue(set.add(5));
+        assertTrue(set.add(0));
+        assertTrue(set.add(-3));
+        assertFalse(set.add(5), "Повторное добавление должно игнорироваться");
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0), "Удалённого элемента уже нет");
+        set.add(0);
+
+        assertEquals(List.of(5, -3, 0), set.toList(), "Нарушен порядок элементов");
+        assertEquals(3, set.size(), "Неверный размер");
+        assertTrue(set.contains(-3), "Элемент не найден");
+    }
+
+    @Test
+    @DisplayName("должно совпадать с LinkedHashSet при случайных операциях")
+    void shouldMatchLinkedHashSet() {
+        Random random = new Random(7);
+        IntSet set = new IntSet();
+        Set<Integer> expected = new LinkedHashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value), "Расхождение при удалении " + value);
+            } else {
+                assertEquals(expected.add(value), set.add(value), "Расхождение при добавлении " + value);
+            }
+            if (i % 10_000 == 0) {
+                set.clear();
+                expected.clear();
+            }
+        }
+        assertEquals(new ArrayList<>(expected), set.toList(), "Содержимое множеств не совпадает");
+        for (int value = 0; value < 500; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "Неверная проверка " + value);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Неизменяемое упорядоченное отображение")
+class PersistentSortedMapTest {
+
+    @Test
+    @DisplayName("должно совпадать с TreeMap и не менять прежние версии")
+    void shouldMatchTreeMapAndKeepOldVersions() {
+        Random random = new Random(7);
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty(Comparator.naturalOrder());
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        List<PersistentSortedMap<Integer, String>> versions = new ArrayList<>();
+        List<List<String>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            if (i % 1000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new ArrayList<>(expected.values()));
+            }
+        }
+        assertEquals(expected.size(), map.size(), "Неверный размер");
+        assertEquals(new ArrayList<>(expected.values()), map.values(), "Нарушен порядок значений");
+        for (int key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key), "Неверное значение для " + key);
+        }
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(expectedVersions.get(i), versions.get(i).values(), "Прежняя версия изменилась");
+        }
+    }
+}
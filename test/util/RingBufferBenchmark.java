@@ -0,0 +1,46 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Пропускная способность очереди при нескольких писателях и одном читателе. Писатели ждут активно,
+// поэтому на машине с малым числом ядер замер идёт долго и запускается вручную, а не вместе с тестами
+public class RingBufferBenchmark {
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 100_000;
+    private static final int CAPACITY = 256;
+
+    public static void main(String[] args) throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<>(CAPACITY);
+        long started = System.nanoTime();
+        int received = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int producer = 0; producer < PRODUCERS; producer++) {
+                int base = producer * PER_PRODUCER;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < PER_PRODUCER; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+            while (received < PRODUCERS * PER_PRODUCER) {
+                if (buffer.poll() == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                received++;
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        System.out.printf("%d элементов от %d писателей: %d мс%n", received, PRODUCERS, millis);
+    }
+}
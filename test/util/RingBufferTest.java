@@ -0,0 +1,76 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Кольцевая очередь без блокировок")
+class RingBufferTest {
+
+    @Test
+    @DisplayName("должна выдавать элементы по порядку и отказывать при заполнении")
+    void shouldKeepOrderAndCapacity() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i), "Свободная ячейка не занята");
+            }
+            assertFalse(buffer.offer(4), "Заполненная очередь приняла элемент");
+            List<Integer> drained = new ArrayList<>();
+            assertEquals(4, buffer.drainTo(drained::add, 10), "Неверное количество элементов");
+            assertEquals(List.of(0, 1, 2, 3), drained, "Нарушен порядок элементов");
+            assertTrue(buffer.isEmpty(), "Очередь должна быть пустой");
+            assertNull(buffer.poll(), "Из пустой очереди получен элемент");
+        }
+    }
+
+    @Test
+    @DisplayName("не должна терять и дублировать элементы нескольких писателей")
+    void shouldAcceptConcurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 5_000;
+        RingBuffer<Integer> buffer = new RingBuffer<>(16);
+        boolean[] seen = new boolean[producers * perProducer];
+        int received = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int producer = 0; producer < producers; producer++) {
+                int base = producer * perProducer;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+            int[] last = new int[producers];
+            Arrays.fill(last, -1);
+            while (received < seen.length) {
+                Integer element = buffer.poll();
+                if (element == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                assertFalse(seen[element], "Элемент получен дважды");
+                seen[element] = true;
+                int producer = element / perProducer;
+                assertTrue(element > last[producer], "Нарушен порядок элементов одного писателя");
+                last[producer] = element;
+                received++;
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertTrue(buffer.isEmpty(), "В очереди остались лишние элементы");
+    }
+}